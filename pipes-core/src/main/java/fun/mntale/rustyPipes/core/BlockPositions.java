@@ -0,0 +1,80 @@
+/**
+ * Packing of block coordinates into a single long.
+ */
+package fun.mntale.rustyPipes.core;
+
+/**
+ * Packs block coordinates exactly like Minecraft's {@code BlockPos.asLong}: 26 bits of X, 26 bits of Z and
+ * 12 bits of Y. Packed positions from the engine and from the server are interchangeable.
+ */
+public final class BlockPositions {
+    private static final int HORIZONTAL_BITS = 26;
+    private static final int Y_BITS = 64 - 2 * HORIZONTAL_BITS;
+    private static final long HORIZONTAL_MASK = (1L << HORIZONTAL_BITS) - 1;
+    private static final long Y_MASK = (1L << Y_BITS) - 1;
+    private static final int Z_OFFSET = Y_BITS;
+    private static final int X_OFFSET = Y_BITS + HORIZONTAL_BITS;
+
+    private BlockPositions() {
+    }
+
+    /**
+     * Packs block coordinates.
+     * @param x The X coordinate.
+     * @param y The Y coordinate.
+     * @param z The Z coordinate.
+     * @return The packed position.
+     */
+    public static long asLong(int x, int y, int z) {
+        return ((x & HORIZONTAL_MASK) << X_OFFSET) | ((z & HORIZONTAL_MASK) << Z_OFFSET) | (y & Y_MASK);
+    }
+
+    /**
+     * Gets the X coordinate of a packed position.
+     * @param pos The packed position.
+     * @return The X coordinate.
+     */
+    public static int getX(long pos) {
+        return (int) (pos >> X_OFFSET);
+    }
+
+    /**
+     * Gets the Y coordinate of a packed position.
+     * @param pos The packed position.
+     * @return The Y coordinate.
+     */
+    public static int getY(long pos) {
+        return (int) (pos << (64 - Y_BITS) >> (64 - Y_BITS));
+    }
+
+    /**
+     * Gets the Z coordinate of a packed position.
+     * @param pos The packed position.
+     * @return The Z coordinate.
+     */
+    public static int getZ(long pos) {
+        return (int) (pos << (64 - X_OFFSET) >> (64 - HORIZONTAL_BITS));
+    }
+
+    /**
+     * Offsets a packed position.
+     * @param pos The packed position.
+     * @param dx The X offset.
+     * @param dy The Y offset.
+     * @param dz The Z offset.
+     * @return The packed offset position.
+     */
+    public static long offset(long pos, int dx, int dy, int dz) {
+        return asLong(getX(pos) + dx, getY(pos) + dy, getZ(pos) + dz);
+    }
+
+    /**
+     * Gets the Manhattan distance between two packed positions.
+     * @param a The first position.
+     * @param b The second position.
+     * @return The distance in blocks.
+     */
+    public static int manhattan(long a, long b) {
+        return Math.abs(getX(a) - getX(b)) + Math.abs(getY(a) - getY(b)) + Math.abs(getZ(a) - getZ(b));
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * Ordering of inputs by how much an output prefers them.
+ */
+package fun.mntale.rustyPipes.core;
+
+import it.unimi.dsi.fastutil.ints.IntArrays;
+
+/**
+ * Ranks the inputs of a network for one output: highest power first, then nearest, then most to the left
+ * of the output's direction of travel. Ties keep the order the inputs were given in.
+ */
+public final class EndpointRanking {
+    /**
+     * Passed as the previous pipe of an output that has no network neighbour, so it has no direction of travel.
+     */
+    public static final long NO_DIRECTION = Long.MIN_VALUE;
+
+    private EndpointRanking() {
+    }
+
+    /**
+     * Ranks inputs for an output.
+     * @param output The packed output position.
+     * @param prevPipe The packed position of the output's first network neighbour, or {@link #NO_DIRECTION}.
+     * @param inputs The packed input positions.
+     * @param powers The redstone power of each input, parallel to inputs.
+     * @return Indexes into inputs, best first.
+     */
+    public static int[] rank(long output, long prevPipe, long[] inputs, int[] powers) {
+        int[] distances = new int[inputs.length];
+        int[] lefts = new int[inputs.length];
+        int[] order = new int[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            distances[i] = BlockPositions.manhattan(output, inputs[i]);
+            lefts[i] = prevPipe == NO_DIRECTION ? 0 : leftness(output, prevPipe, inputs[i]);
+            order[i] = i;
+        }
+        // Merge sort is stable, so ties keep input order
+        IntArrays.mergeSort(order, (a, b) -> {
+            if (powers[a] != powers[b]) return Integer.compare(powers[b], powers[a]);
+            if (distances[a] != distances[b]) return Integer.compare(distances[a], distances[b]);
+            return Integer.compare(lefts[b], lefts[a]);
+        });
+        return order;
+    }
+
+    /**
+     * Computes how far to the left of the direction of travel a candidate lies, in the XZ plane.
+     * @param from The packed output position.
+     * @param via The packed previous pipe; travel goes from it to the output.
+     * @param candidate The packed candidate position.
+     * @return Positive to the left, negative to the right, 0 straight ahead or behind.
+     */
+    public static int leftness(long from, long via, long candidate) {
+        // Direction of travel: via -> from (previous pipe to current output)
+        int dx1 = BlockPositions.getX(from) - BlockPositions.getX(via);
+        int dz1 = BlockPositions.getZ(from) - BlockPositions.getZ(via);
+        // Direction to candidate: from -> candidate
+        int dx2 = BlockPositions.getX(candidate) - BlockPositions.getX(from);
+        int dz2 = BlockPositions.getZ(candidate) - BlockPositions.getZ(from);
+        // Cross product (Y component): dx1*dz2 - dz1*dx2
+        return dx1 * dz2 - dz1 * dx2;
+    }
+}
@@ -0,0 +1,26 @@
+/**
+ * Classifies the role a block plays inside a pipe network.
+ */
+package fun.mntale.rustyPipes.core;
+
+/**
+ * The kind of a node in a pipe network.
+ */
+public enum NodeKind {
+    /** A plain pipe segment; carries items but never attaches to a container. */
+    PIPE,
+    /** A copper block: an input while powered, an output otherwise. */
+    BOTH,
+    /** Cut copper: always pulls items out of its container. */
+    OUTPUT,
+    /** Chiseled copper: always pushes items into its container. */
+    INPUT;
+
+    /**
+     * Checks if nodes of this kind can attach to a container.
+     * @return True for every kind except {@link #PIPE}.
+     */
+    public boolean isEndpoint() {
+        return this != PIPE;
+    }
+}
@@ -0,0 +1,437 @@
+/**
+ * Storage of a connected pipe graph by packed block position.
+ */
+package fun.mntale.rustyPipes.core;
+
+import it.unimi.dsi.fastutil.longs.Long2ByteOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntMaps;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongLinkedOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.longs.LongSets;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * The nodes of a pipe network and their links, keyed by packed position (see {@link BlockPositions}).
+ * Every node carries a 6-bit mask of the directions in which it has a neighbour in this graph, so walking
+ * the graph never needs hash lookups for absent neighbours.
+ * Graphs of one world are kept disjoint through an index from position to graph: {@link #attach} merges the
+ * graphs a new node touches, and {@link #detach} followed by {@link #splitDisconnected} breaks off the parts a
+ * removal disconnected.
+ * Not thread-safe.
+ */
+public class PipeGraph {
+    /**
+     * Direction offsets in neighbour-mask bit order: north, east, south, west, up, down.
+     */
+    public static final int[][] DIRECTIONS = {
+        {0, 0, -1}, {1, 0, 0}, {0, 0, 1}, {-1, 0, 0}, {0, 1, 0}, {0, -1, 0}
+    };
+
+    /**
+     * The outcome of attaching a node to an index of graphs.
+     * @param target The graph the node was added to.
+     * @param created True if the target is a new graph, because the node touched none.
+     * @param absorbed The graphs folded into the target; they are empty and no longer indexed.
+     * @param <G> The graph type.
+     */
+    public record Attachment<G extends PipeGraph>(G target, boolean created, List<G> absorbed) {}
+
+    // Packed position -> neighbour mask
+    private final Long2ByteOpenHashMap nodes = new Long2ByteOpenHashMap();
+    // Packed position -> kind, for endpoint nodes only
+    private final Long2ObjectOpenHashMap<NodeKind> endpoints = new Long2ObjectOpenHashMap<>();
+    private long topologyVersion;
+
+    /**
+     * Constructs an empty PipeGraph.
+     */
+    public PipeGraph() {
+        this.nodes.defaultReturnValue((byte) -1);
+    }
+
+    /**
+     * Gets a read-only view of the packed positions in this graph.
+     * @return Set of packed positions.
+     */
+    public LongSet getPositions() {
+        return LongSets.unmodifiable(nodes.keySet());
+    }
+
+    /**
+     * Adds a node to the graph and links it with its neighbours.
+     * @param pos The packed position to add.
+     * @param kind The kind of the node.
+     * @return True if the node was not already present.
+     */
+    public boolean addPipe(long pos, NodeKind kind) {
+        if (nodes.containsKey(pos)) return false;
+        nodes.put(pos, (byte) link(pos));
+        if (kind.isEndpoint()) {
+            endpoints.put(pos, kind);
+        }
+        topologyVersion++;
+        return true;
+    }
+
+    /**
+     * Gets the kind of a node.
+     * @param pos The packed position.
+     * @return The node kind, or null if the position is not in this graph.
+     */
+    public NodeKind getKind(long pos) {
+        NodeKind kind = endpoints.get(pos);
+        if (kind != null) return kind;
+        return nodes.containsKey(pos) ? NodeKind.PIPE : null;
+    }
+
+    /**
+     * Gets a read-only view of the endpoint nodes of this graph.
+     * @return Map of packed position to endpoint kind.
+     */
+    public Long2ObjectMap<NodeKind> getEndpointKinds() {
+        return Long2ObjectMaps.unmodifiable(endpoints);
+    }
+
+    /**
+     * Removes a node from the graph and unlinks it from its neighbours.
+     * @param pos The packed position to remove.
+     * @return True if the node was present.
+     */
+    public boolean removePipe(long pos) {
+        byte mask = nodes.remove(pos);
+        if (mask < 0) return false;
+        endpoints.remove(pos);
+        for (int dir = 0; dir < 6; dir++) {
+            if ((mask & (1 << dir)) == 0) continue;
+            long adj = neighbour(pos, dir);
+            nodes.put(adj, (byte) (nodes.get(adj) & ~(1 << opposite(dir))));
+        }
+        topologyVersion++;
+        return true;
+    }
+
+    /**
+     * Moves every node of another graph into this one.
+     * The other graph is left empty and should be discarded.
+     * @param other The graph to absorb.
+     */
+    public void absorb(PipeGraph other) {
+        if (other == this || other.nodes.isEmpty()) return;
+        nodes.putAll(other.nodes);
+        // Only nodes on the seam can gain links; recompute the masks of the absorbed side
+        LongIterator it = other.nodes.keySet().iterator();
+        while (it.hasNext()) {
+            long pos = it.nextLong();
+            nodes.put(pos, (byte) link(pos));
+        }
+        endpoints.putAll(other.endpoints);
+        other.nodes.clear();
+        other.endpoints.clear();
+        other.topologyVersion++;
+        topologyVersion++;
+    }
+
+    /**
+     * Union step: adds a node to the graph its neighbours belong to, folding the other graphs it touches into
+     * the largest one. Smaller graphs are re-indexed, so the work is bounded by the size of the smaller sides.
+     * @param index Packed position to graph, for every node of every graph in the world.
+     * @param pos The packed position to add.
+     * @param kind The kind of the node.
+     * @param factory Creates a graph for a node that touches none.
+     * @param <G> The graph type.
+     * @return What happened, or null if the position is already indexed.
+     */
+    public static <G extends PipeGraph> Attachment<G> attach(Long2ObjectMap<G> index, long pos, NodeKind kind,
+                                                             Supplier<G> factory) {
+        if (index.containsKey(pos)) return null;
+        List<G> adjacent = new ArrayList<>(6);
+        G target = null;
+        for (int dir = 0; dir < 6; dir++) {
+            G graph = index.get(neighbour(pos, dir));
+            if (graph == null || adjacent.contains(graph)) continue;
+            adjacent.add(graph);
+            if (target == null || graph.getTotalComponents() > target.getTotalComponents()) {
+                target = graph;
+            }
+        }
+        boolean created = target == null;
+        if (created) {
+            target = factory.get();
+        }
+        target.addPipe(pos, kind);
+        index.put(pos, target);
+        adjacent.remove(target);
+        for (G other : adjacent) {
+            LongIterator it = other.getPositions().iterator();
+            while (it.hasNext()) {
+                index.put(it.nextLong(), target);
+            }
+            target.absorb(other);
+        }
+        return new Attachment<>(target, created, adjacent);
+    }
+
+    /**
+     * Removal step: drops a batch of nodes from their graphs and the index, and collects per graph the
+     * surviving neighbours of the removed nodes. Those are the seeds for {@link #splitDisconnected}.
+     * @param index Packed position to graph, for every node of every graph in the world.
+     * @param positions The packed positions to remove; positions not indexed are ignored.
+     * @param <G> The graph type.
+     * @return Every graph that lost a node, in the order first hit, to its seeds; graphs may be left empty.
+     */
+    public static <G extends PipeGraph> Map<G, LongList> detach(Long2ObjectMap<G> index, LongList positions) {
+        Map<G, LongLinkedOpenHashSet> seedsByGraph = new LinkedHashMap<>();
+        for (int i = 0; i < positions.size(); i++) {
+            long pos = positions.getLong(i);
+            G graph = index.remove(pos);
+            if (graph == null) continue;
+            int mask = graph.getNeighbourMask(pos);
+            graph.removePipe(pos);
+            LongLinkedOpenHashSet seeds = seedsByGraph.computeIfAbsent(graph, g -> new LongLinkedOpenHashSet());
+            seeds.remove(pos);
+            for (int dir = 0; dir < 6; dir++) {
+                if ((mask & (1 << dir)) != 0) {
+                    seeds.add(neighbour(pos, dir));
+                }
+            }
+        }
+        Map<G, LongList> result = new LinkedHashMap<>();
+        for (Map.Entry<G, LongLinkedOpenHashSet> entry : seedsByGraph.entrySet()) {
+            G graph = entry.getKey();
+            LongArrayList seeds = new LongArrayList();
+            LongIterator it = entry.getValue().iterator();
+            while (it.hasNext()) {
+                long seed = it.nextLong();
+                // A later position of the batch may have removed an earlier seed
+                if (graph.hasPipeAt(seed)) seeds.add(seed);
+            }
+            result.put(graph, seeds);
+        }
+        return result;
+    }
+
+    /**
+     * Splits off the parts of this graph that are no longer connected to the rest.
+     * Runs one breadth-first search per seed in lockstep. Searches that touch are merged with union-find, and a
+     * search group that runs out of nodes first is a detached component and moves to a graph of its own.
+     * The work is bounded by the size of the pieces that break off, not by the whole graph.
+     * @param seeds Nodes of this graph, one per possibly disconnected part, e.g. from {@link #detach}.
+     * @param factory Creates the graphs for detached parts.
+     * @param <G> The graph type.
+     * @return The detached graphs, empty if the seeds are still connected; the caller must re-index their nodes.
+     */
+    public <G extends PipeGraph> List<G> splitDisconnected(LongList seeds, Supplier<G> factory) {
+        List<G> detached = new ArrayList<>();
+        int count = seeds.size();
+        if (count < 2) return detached;
+        int[] parent = new int[count];
+        LongArrayFIFOQueue[] frontiers = new LongArrayFIFOQueue[count];
+        Long2IntOpenHashMap owner = new Long2IntOpenHashMap();
+        owner.defaultReturnValue(-1);
+        int open = count;
+        for (int i = 0; i < count; i++) {
+            parent[i] = i;
+            frontiers[i] = new LongArrayFIFOQueue();
+            long seed = seeds.getLong(i);
+            int seen = owner.putIfAbsent(seed, i);
+            if (seen < 0) {
+                frontiers[i].enqueue(seed);
+            } else {
+                // Duplicate seed: already part of that search
+                parent[i] = seen;
+                open--;
+            }
+        }
+        while (open > 1) {
+            for (int i = 0; i < count && open > 1; i++) {
+                LongArrayFIFOQueue frontier = frontiers[i];
+                if (frontier.isEmpty()) continue;
+                long curr = frontier.dequeueLong();
+                int mask = getNeighbourMask(curr);
+                for (int dir = 0; dir < 6; dir++) {
+                    if ((mask & (1 << dir)) == 0) continue;
+                    long adj = neighbour(curr, dir);
+                    int seen = owner.get(adj);
+                    if (seen < 0) {
+                        owner.put(adj, i);
+                        frontier.enqueue(adj);
+                    } else {
+                        int a = findRoot(parent, seen);
+                        int b = findRoot(parent, i);
+                        if (a != b) {
+                            parent[a] = b;
+                            open--;
+                        }
+                    }
+                }
+                if (frontier.isEmpty() && open > 1 && isGroupExhausted(parent, frontiers, i)) {
+                    detached.add(detachGroup(owner, parent, findRoot(parent, i), factory));
+                    open--;
+                }
+            }
+        }
+        return detached;
+    }
+
+    /**
+     * Gets the total number of nodes in this graph.
+     * @return Total number of nodes.
+     */
+    public int getTotalComponents() {
+        return nodes.size();
+    }
+
+    /**
+     * Checks if this graph has a node at the given packed position.
+     * @param pos The packed position to check.
+     * @return True if a node exists at the position.
+     */
+    public boolean hasPipeAt(long pos) {
+        return nodes.containsKey(pos);
+    }
+
+    /**
+     * Gets the neighbour mask of a node.
+     * @param pos The packed position.
+     * @return The 6-bit neighbour mask, or 0 if the position is not in this graph.
+     */
+    public int getNeighbourMask(long pos) {
+        byte mask = nodes.get(pos);
+        return mask < 0 ? 0 : mask;
+    }
+
+    /**
+     * Gets the topology version of this graph.
+     * The version changes whenever a node is added, removed or merged in.
+     * @return The topology version.
+     */
+    public long getTopologyVersion() {
+        return topologyVersion;
+    }
+
+    /**
+     * Raises the topology version to at least a saved value, so versions keep increasing across restarts.
+     * @param version The topology version the graph had when it was saved.
+     */
+    public void restoreTopologyVersion(long version) {
+        topologyVersion = Math.max(topologyVersion, version);
+    }
+
+    /**
+     * Finds the shortest path between two nodes with a breadth-first search over the neighbour masks.
+     * @param start The packed start position.
+     * @param end The packed end position.
+     * @return The packed positions from start to end inclusive, or an empty array if they are not connected.
+     */
+    public long[] shortestPath(long start, long end) {
+        if (!nodes.containsKey(start) || !nodes.containsKey(end)) return new long[0];
+        Long2LongOpenHashMap prev = new Long2LongOpenHashMap();
+        LongArrayFIFOQueue queue = new LongArrayFIFOQueue();
+        queue.enqueue(start);
+        prev.put(start, start);
+        while (!queue.isEmpty()) {
+            long curr = queue.dequeueLong();
+            if (curr == end) break;
+            int mask = nodes.get(curr);
+            for (int dir = 0; dir < 6; dir++) {
+                if ((mask & (1 << dir)) == 0) continue;
+                long adj = neighbour(curr, dir);
+                if (!prev.containsKey(adj)) {
+                    prev.put(adj, curr);
+                    queue.enqueue(adj);
+                }
+            }
+        }
+        if (!prev.containsKey(end)) return new long[0];
+        // Walk back from the end, then fill the array from the back
+        int length = 1;
+        for (long curr = end; curr != start; curr = prev.get(curr)) {
+            length++;
+        }
+        long[] path = new long[length];
+        long curr = end;
+        for (int i = length - 1; i >= 0; i--) {
+            path[i] = curr;
+            curr = prev.get(curr);
+        }
+        return path;
+    }
+
+    /**
+     * Offsets a packed position one block in a direction.
+     * @param pos The packed position.
+     * @param dir The direction index (see {@link #DIRECTIONS}).
+     * @return The packed neighbour position.
+     */
+    public static long neighbour(long pos, int dir) {
+        int[] d = DIRECTIONS[dir];
+        return BlockPositions.offset(pos, d[0], d[1], d[2]);
+    }
+
+    /**
+     * Gets the opposite of a direction.
+     * @param dir The direction index.
+     * @return The opposite direction index.
+     */
+    public static int opposite(int dir) {
+        return dir < 4 ? (dir + 2) & 3 : dir ^ 1;
+    }
+
+    // Union-find root lookup with path halving
+    private static int findRoot(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    // True once every search merged into the group of 'member' has nothing left to visit
+    private static boolean isGroupExhausted(int[] parent, LongArrayFIFOQueue[] frontiers, int member) {
+        int root = findRoot(parent, member);
+        for (int j = 0; j < frontiers.length; j++) {
+            if (findRoot(parent, j) == root && !frontiers[j].isEmpty()) return false;
+        }
+        return true;
+    }
+
+    // Moves every node reached by the given search group into a new graph
+    private <G extends PipeGraph> G detachGroup(Long2IntOpenHashMap owner, int[] parent, int root, Supplier<G> factory) {
+        G detached = factory.get();
+        for (Long2IntMap.Entry entry : Long2IntMaps.fastIterable(owner)) {
+            if (findRoot(parent, entry.getIntValue()) != root) continue;
+            long pos = entry.getLongKey();
+            detached.addPipe(pos, getKind(pos));
+            removePipe(pos);
+        }
+        return detached;
+    }
+
+    // Computes the mask of a node from its present neighbours and sets the back-links on them
+    private int link(long pos) {
+        int mask = 0;
+        for (int dir = 0; dir < 6; dir++) {
+            long adj = neighbour(pos, dir);
+            byte adjMask = nodes.get(adj);
+            if (adjMask < 0) continue;
+            mask |= 1 << dir;
+            nodes.put(adj, (byte) (adjMask | (1 << opposite(dir))));
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * Decides where the items of one output go during a network run.
+ */
+package fun.mntale.rustyPipes.core;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.util.List;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Plans one output's transfer: every item walks the output's ranked inputs and goes to the first one that
+ * takes it and has room, until the item budget is spent. Inputs found full for an item are skipped for the
+ * rest of the transfer. The planner never touches items itself; containers and moves are supplied by the caller,
+ * so the same logic drives the server and headless simulations.
+ */
+public final class TransferPlanner {
+    /**
+     * A container items are taken from.
+     * @param <K> The item key; equal keys may be routed the same way.
+     */
+    public interface Source<K> {
+        /**
+         * Gets the slots holding items, in the order they should be emptied.
+         * @return The occupied slots; the planner re-checks each one before use.
+         */
+        int[] occupiedSlots();
+
+        /**
+         * Gets the item in a slot.
+         * @param slot The slot.
+         * @return The item key, or null if the slot is empty.
+         */
+        K itemAt(int slot);
+    }
+
+    /**
+     * Carries out the moves the planner decides on.
+     * @param <T> The input type.
+     */
+    @FunctionalInterface
+    public interface Mover<T> {
+        /**
+         * Moves items from a source slot into an input.
+         * @param slot The source slot.
+         * @param input The input.
+         * @param max The maximum number of items to move.
+         * @return The number of items moved; less than available means the input is full for this item.
+         */
+        int move(int slot, T input, int max);
+    }
+
+    private TransferPlanner() {
+    }
+
+    /**
+     * Runs one output's transfer.
+     * @param source The output's container.
+     * @param sends Checks if the output sends an item, e.g. its filter.
+     * @param ranked The inputs, best first for this output.
+     * @param takes Checks if an input takes an item, e.g. its filter.
+     * @param mover Moves items into an input.
+     * @param budget The maximum number of items to move.
+     * @param <K> The item key.
+     * @param <T> The input type.
+     * @return The number of items moved.
+     */
+    public static <K, T> int transfer(Source<K> source, Predicate<K> sends, List<T> ranked, BiPredicate<T, K> takes,
+                                      Mover<T> mover, int budget) {
+        // Per item, the first ranked input not yet found full or closed to it
+        Object2IntOpenHashMap<K> firstOpen = new Object2IntOpenHashMap<>();
+        int moved = 0;
+        for (int slot : source.occupiedSlots()) {
+            if (moved >= budget) break;
+            K item = source.itemAt(slot);
+            if (item == null || !sends.test(item)) continue;
+            int i = firstOpen.getInt(item);
+            for (; i < ranked.size(); i++) {
+                T input = ranked.get(i);
+                if (!takes.test(input, item)) continue;
+                moved += mover.move(slot, input, budget - moved);
+                // Whatever is left of the stack did not fit into this input; try the next one
+                if (moved >= budget || source.itemAt(slot) == null) break;
+            }
+            firstOpen.put(item, i);
+        }
+        return moved;
+    }
+}
@@ -0,0 +1,6 @@
+/**
+ * Server-independent pipe engine: graph storage, endpoint ranking, path finding and transfer planning.
+ * Works on packed block positions and abstract containers only, so it runs headless for simulation,
+ * profiling and benchmarks; the plugin adapts it to the world.
+ */
+package fun.mntale.rustyPipes.core;
@@ -0,0 +1,68 @@
+/**
+ * Tests for the input ranking and its tie-breaking.
+ */
+package fun.mntale.rustyPipes.core;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EndpointRankingTest {
+    private static final long OUTPUT = BlockPositions.asLong(0, 0, 0);
+    // Items travel north into the output
+    private static final long PREV_PIPE = BlockPositions.asLong(0, 0, 1);
+
+    @Test
+    void powerComesFirst() {
+        long[] inputs = {pos(1, 0, 0), pos(9, 0, 0)};
+
+        assertArrayEquals(new int[] {1, 0}, EndpointRanking.rank(OUTPUT, PREV_PIPE, inputs, new int[] {3, 7}));
+    }
+
+    @Test
+    void equalPowerGoesNearestFirst() {
+        long[] inputs = {pos(0, 5, 0), pos(2, 0, 0), pos(0, 0, -3)};
+
+        assertArrayEquals(new int[] {1, 2, 0}, EndpointRanking.rank(OUTPUT, PREV_PIPE, inputs, new int[] {4, 4, 4}));
+    }
+
+    @Test
+    void equalDistanceGoesByLeftness() {
+        long east = pos(2, 0, 0);
+        long west = pos(-2, 0, 0);
+        assertTrue(EndpointRanking.leftness(OUTPUT, PREV_PIPE, east) > EndpointRanking.leftness(OUTPUT, PREV_PIPE, west));
+
+        assertArrayEquals(new int[] {1, 0}, EndpointRanking.rank(OUTPUT, PREV_PIPE, new long[] {west, east}, new int[2]));
+        assertArrayEquals(new int[] {0, 1}, EndpointRanking.rank(OUTPUT, PREV_PIPE, new long[] {east, west}, new int[2]));
+    }
+
+    @Test
+    void fullTiesKeepInputOrder() {
+        // Straight ahead and straight behind have no leftness
+        long ahead = pos(0, 0, -2);
+        long behind = pos(0, 0, 2);
+        assertEquals(0, EndpointRanking.leftness(OUTPUT, PREV_PIPE, ahead));
+        assertEquals(0, EndpointRanking.leftness(OUTPUT, PREV_PIPE, behind));
+
+        assertArrayEquals(new int[] {0, 1}, EndpointRanking.rank(OUTPUT, PREV_PIPE, new long[] {ahead, behind}, new int[2]));
+        assertArrayEquals(new int[] {0, 1}, EndpointRanking.rank(OUTPUT, PREV_PIPE, new long[] {behind, ahead}, new int[2]));
+    }
+
+    @Test
+    void noDirectionIgnoresLeftness() {
+        long[] inputs = {pos(-2, 0, 0), pos(2, 0, 0)};
+
+        assertArrayEquals(new int[] {0, 1}, EndpointRanking.rank(OUTPUT, EndpointRanking.NO_DIRECTION, inputs, new int[2]));
+    }
+
+    @Test
+    void noInputsRankEmpty() {
+        assertEquals(0, EndpointRanking.rank(OUTPUT, PREV_PIPE, new long[0], new int[0]).length);
+    }
+
+    private static long pos(int x, int y, int z) {
+        return BlockPositions.asLong(x, y, z);
+    }
+}
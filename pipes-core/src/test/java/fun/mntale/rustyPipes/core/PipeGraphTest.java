@@ -0,0 +1,213 @@
+/**
+ * Tests for graph storage, merging and splitting.
+ */
+package fun.mntale.rustyPipes.core;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PipeGraphTest {
+    private static final int NORTH = 0;
+    private static final int EAST = 1;
+    private static final int WEST = 3;
+
+    @Test
+    void addLinksBothNeighbours() {
+        PipeGraph graph = new PipeGraph();
+        assertTrue(graph.addPipe(pos(0, 0, 0), NodeKind.PIPE));
+        assertTrue(graph.addPipe(pos(1, 0, 0), NodeKind.INPUT));
+
+        assertEquals(1 << EAST, graph.getNeighbourMask(pos(0, 0, 0)));
+        assertEquals(1 << WEST, graph.getNeighbourMask(pos(1, 0, 0)));
+        assertEquals(NodeKind.INPUT, graph.getKind(pos(1, 0, 0)));
+        assertEquals(1, graph.getEndpointKinds().size());
+        assertEquals(2, graph.getTopologyVersion());
+    }
+
+    @Test
+    void addIgnoresPresentNode() {
+        PipeGraph graph = new PipeGraph();
+        graph.addPipe(pos(0, 0, 0), NodeKind.PIPE);
+
+        assertFalse(graph.addPipe(pos(0, 0, 0), NodeKind.OUTPUT));
+        assertEquals(NodeKind.PIPE, graph.getKind(pos(0, 0, 0)));
+        assertEquals(1, graph.getTopologyVersion());
+    }
+
+    @Test
+    void removeUnlinksNeighbours() {
+        PipeGraph graph = line(0, 2);
+
+        assertTrue(graph.removePipe(pos(1, 0, 0)));
+        assertFalse(graph.removePipe(pos(1, 0, 0)));
+        assertEquals(0, graph.getNeighbourMask(pos(0, 0, 0)));
+        assertEquals(0, graph.getNeighbourMask(pos(2, 0, 0)));
+        assertNull(graph.getKind(pos(1, 0, 0)));
+        assertEquals(2, graph.getTotalComponents());
+    }
+
+    @Test
+    void shortestPathFollowsLinks() {
+        PipeGraph graph = line(0, 3);
+
+        assertArrayEquals(new long[] {pos(0, 0, 0), pos(1, 0, 0), pos(2, 0, 0), pos(3, 0, 0)},
+            graph.shortestPath(pos(0, 0, 0), pos(3, 0, 0)));
+        graph.removePipe(pos(2, 0, 0));
+        assertEquals(0, graph.shortestPath(pos(0, 0, 0), pos(3, 0, 0)).length);
+    }
+
+    @Test
+    void attachCreatesGraphForLoneNode() {
+        Long2ObjectMap<PipeGraph> index = new Long2ObjectOpenHashMap<>();
+
+        PipeGraph.Attachment<PipeGraph> attachment = PipeGraph.attach(index, pos(0, 0, 0), NodeKind.PIPE, PipeGraph::new);
+
+        assertTrue(attachment.created());
+        assertTrue(attachment.absorbed().isEmpty());
+        assertSame(attachment.target(), index.get(pos(0, 0, 0)));
+        assertNull(PipeGraph.attach(index, pos(0, 0, 0), NodeKind.PIPE, PipeGraph::new));
+    }
+
+    @Test
+    void attachMergesIntoLargestNeighbour() {
+        Long2ObjectMap<PipeGraph> index = new Long2ObjectOpenHashMap<>();
+        PipeGraph large = indexed(index, line(0, 2));
+        PipeGraph small = new PipeGraph();
+        small.addPipe(pos(4, 0, 0), NodeKind.OUTPUT);
+        indexed(index, small);
+
+        PipeGraph.Attachment<PipeGraph> attachment = PipeGraph.attach(index, pos(3, 0, 0), NodeKind.PIPE, PipeGraph::new);
+
+        assertFalse(attachment.created());
+        assertSame(large, attachment.target());
+        assertEquals(List.of(small), attachment.absorbed());
+        assertEquals(0, small.getTotalComponents());
+        assertEquals(5, large.getTotalComponents());
+        assertEquals(NodeKind.OUTPUT, large.getKind(pos(4, 0, 0)));
+        assertEquals(1 << WEST, large.getNeighbourMask(pos(4, 0, 0)));
+        for (int x = 0; x <= 4; x++) {
+            assertSame(large, index.get(pos(x, 0, 0)));
+        }
+    }
+
+    @Test
+    void detachCollectsSurvivingNeighbours() {
+        Long2ObjectMap<PipeGraph> index = new Long2ObjectOpenHashMap<>();
+        PipeGraph graph = indexed(index, line(0, 4));
+
+        Map<PipeGraph, LongList> seeds = PipeGraph.detach(index, LongArrayList.of(pos(2, 0, 0), pos(3, 0, 0), pos(9, 0, 0)));
+
+        assertEquals(1, seeds.size());
+        // The removed node's neighbour at x=3 went with the same batch
+        assertEquals(LongArrayList.of(pos(1, 0, 0), pos(4, 0, 0)), seeds.get(graph));
+        assertFalse(index.containsKey(pos(2, 0, 0)));
+        assertFalse(index.containsKey(pos(3, 0, 0)));
+        assertEquals(3, graph.getTotalComponents());
+    }
+
+    @Test
+    void splitDetachesDisconnectedPart() {
+        Long2ObjectMap<PipeGraph> index = new Long2ObjectOpenHashMap<>();
+        PipeGraph graph = indexed(index, line(0, 3));
+        graph.addPipe(pos(4, 0, 0), NodeKind.INPUT);
+        index.put(pos(4, 0, 0), graph);
+
+        LongList seeds = PipeGraph.detach(index, LongArrayList.of(pos(2, 0, 0))).get(graph);
+        List<PipeGraph> detached = graph.splitDisconnected(seeds, PipeGraph::new);
+
+        assertEquals(1, detached.size());
+        PipeGraph piece = detached.get(0);
+        assertEquals(2, piece.getTotalComponents());
+        assertEquals(2, graph.getTotalComponents());
+        // Each side stays whole and keeps its endpoint kinds
+        PipeGraph withInput = graph.hasPipeAt(pos(4, 0, 0)) ? graph : piece;
+        assertTrue(withInput.hasPipeAt(pos(3, 0, 0)));
+        assertEquals(NodeKind.INPUT, withInput.getKind(pos(4, 0, 0)));
+        PipeGraph other = withInput == graph ? piece : graph;
+        assertTrue(other.hasPipeAt(pos(0, 0, 0)));
+        assertTrue(other.hasPipeAt(pos(1, 0, 0)));
+    }
+
+    @Test
+    void splitKeepsLoopTogether() {
+        PipeGraph graph = new PipeGraph();
+        // 3x3 ring in the XZ plane
+        for (int x = 0; x <= 2; x++) {
+            for (int z = 0; z <= 2; z++) {
+                if (x != 1 || z != 1) graph.addPipe(pos(x, 0, z), NodeKind.PIPE);
+            }
+        }
+        graph.removePipe(pos(1, 0, 0));
+
+        assertTrue(graph.splitDisconnected(LongArrayList.of(pos(0, 0, 0), pos(2, 0, 0)), PipeGraph::new).isEmpty());
+        assertEquals(7, graph.getTotalComponents());
+    }
+
+    @Test
+    void splitSeparatesEveryArm() {
+        PipeGraph graph = new PipeGraph();
+        long center = pos(0, 0, 0);
+        graph.addPipe(center, NodeKind.PIPE);
+        for (int dir = 0; dir < 6; dir++) {
+            long arm = PipeGraph.neighbour(center, dir);
+            graph.addPipe(arm, NodeKind.PIPE);
+            graph.addPipe(PipeGraph.neighbour(arm, dir), NodeKind.PIPE);
+        }
+        graph.removePipe(center);
+        LongArrayList seeds = new LongArrayList();
+        for (int dir = 0; dir < 6; dir++) {
+            seeds.add(PipeGraph.neighbour(center, dir));
+        }
+
+        List<PipeGraph> detached = graph.splitDisconnected(seeds, PipeGraph::new);
+
+        assertEquals(5, detached.size());
+        assertEquals(2, graph.getTotalComponents());
+        for (PipeGraph piece : detached) {
+            assertEquals(2, piece.getTotalComponents());
+        }
+    }
+
+    @Test
+    void neighbourAndOppositeAgree() {
+        for (int dir = 0; dir < 6; dir++) {
+            long pos = pos(5, 64, -7);
+            assertEquals(pos, PipeGraph.neighbour(PipeGraph.neighbour(pos, dir), PipeGraph.opposite(dir)));
+        }
+        assertEquals(pos(0, 0, -1), PipeGraph.neighbour(pos(0, 0, 0), NORTH));
+    }
+
+    // A straight run of pipes along X
+    private static PipeGraph line(int fromX, int toX) {
+        PipeGraph graph = new PipeGraph();
+        for (int x = fromX; x <= toX; x++) {
+            graph.addPipe(pos(x, 0, 0), NodeKind.PIPE);
+        }
+        return graph;
+    }
+
+    // Indexes every node of a graph
+    private static PipeGraph indexed(Long2ObjectMap<PipeGraph> index, PipeGraph graph) {
+        for (long pos : graph.getPositions()) {
+            index.put(pos, graph);
+        }
+        return graph;
+    }
+
+    private static long pos(int x, int y, int z) {
+        return BlockPositions.asLong(x, y, z);
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * Tests for one output's transfer plan against in-memory containers.
+ */
+package fun.mntale.rustyPipes.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TransferPlannerTest {
+    @Test
+    void fillsBestInputFirst() {
+        Chest chest = new Chest("stone", 10);
+        Input best = new Input(64);
+        Input next = new Input(64);
+
+        assertEquals(10, run(chest, List.of(best, next), 64));
+        assertEquals(10, best.stored);
+        assertEquals(0, next.stored);
+        assertArrayEquals(new int[0], chest.occupiedSlots());
+    }
+
+    @Test
+    void overflowsIntoNextInput() {
+        Chest chest = new Chest("stone", 10);
+        Input best = new Input(4);
+        Input next = new Input(64);
+
+        assertEquals(10, run(chest, List.of(best, next), 64));
+        assertEquals(4, best.stored);
+        assertEquals(6, next.stored);
+    }
+
+    @Test
+    void stopsAtBudget() {
+        Chest chest = new Chest("stone", 10, "dirt", 10);
+        Input input = new Input(64);
+
+        assertEquals(3, run(chest, List.of(input), 3));
+        assertEquals(7, chest.counts[0]);
+        assertEquals(10, chest.counts[1]);
+    }
+
+    @Test
+    void routesByFilter() {
+        Chest chest = new Chest("stone", 2, "dirt", 3);
+        Input dirtOnly = new Input(64, "dirt");
+        Input open = new Input(64);
+
+        assertEquals(5, run(chest, List.of(dirtOnly, open), 64));
+        assertEquals(3, dirtOnly.stored);
+        assertEquals(2, open.stored);
+    }
+
+    @Test
+    void keepsItemsTheOutputDoesNotSend() {
+        Chest chest = new Chest("stone", 2, "dirt", 3);
+        Input input = new Input(64);
+
+        int moved = TransferPlanner.transfer(chest, item -> !item.equals("dirt"), List.of(input), Input::takes,
+            chest::moveTo, 64);
+
+        assertEquals(2, moved);
+        assertArrayEquals(new int[] {1}, chest.occupiedSlots());
+    }
+
+    @Test
+    void skipsInputsFoundFull() {
+        Chest chest = new Chest("stone", 3, "stone", 1, "stone", 1);
+        Input best = new Input(2);
+        Input next = new Input(64);
+
+        assertEquals(5, run(chest, List.of(best, next), 64));
+        assertEquals(2, best.stored);
+        assertEquals(3, next.stored);
+        // Only the first stack is offered to the full input
+        assertEquals(1, best.offers);
+    }
+
+    // Runs a transfer from an output that sends everything
+    private static int run(Chest chest, List<Input> ranked, int budget) {
+        return TransferPlanner.transfer(chest, item -> true, ranked, Input::takes, chest::moveTo, budget);
+    }
+
+    // Source with one item name and count per slot
+    private static final class Chest implements TransferPlanner.Source<String> {
+        private final String[] items;
+        private final int[] counts;
+
+        // Alternating item names and counts
+        Chest(Object... stacks) {
+            items = new String[stacks.length / 2];
+            counts = new int[stacks.length / 2];
+            for (int i = 0; i < items.length; i++) {
+                items[i] = (String) stacks[2 * i];
+                counts[i] = (Integer) stacks[2 * i + 1];
+            }
+        }
+
+        @Override
+        public int[] occupiedSlots() {
+            int[] slots = new int[counts.length];
+            int size = 0;
+            for (int slot = 0; slot < counts.length; slot++) {
+                if (counts[slot] > 0) slots[size++] = slot;
+            }
+            return Arrays.copyOf(slots, size);
+        }
+
+        @Override
+        public String itemAt(int slot) {
+            return counts[slot] > 0 ? items[slot] : null;
+        }
+
+        int moveTo(int slot, Input input, int max) {
+            input.offers++;
+            int moved = Math.min(Math.min(max, counts[slot]), input.capacity - input.stored);
+            counts[slot] -= moved;
+            input.stored += moved;
+            return moved;
+        }
+    }
+
+    // Input with a capacity and an optional filter
+    private static final class Input {
+        private final int capacity;
+        private final Set<String> filter;
+        private int stored;
+        private int offers;
+
+        Input(int capacity, String... filter) {
+            this.capacity = capacity;
+            this.filter = Set.of(filter);
+        }
+
+        boolean takes(String item) {
+            return filter.isEmpty() || filter.contains(item);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * Benchmarks of choosing a destination input for each output.
+ */
+package fun.mntale.rustyPipes.benchmarks;
+
+import fun.mntale.rustyPipes.models.Endpoint;
+import fun.mntale.rustyPipes.models.EndpointTable;
+import fun.mntale.rustyPipes.core.NodeKind;
+import it.unimi.dsi.fastutil.objects.ReferenceSet;
+import it.unimi.dsi.fastutil.objects.ReferenceSets;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.Items;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures ranking the inputs of every output when an endpoint table is built, and routing one item per
+ * output through the ranked lists as a network run does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EndpointSelectionBenchmark {
+    @Param({"10", "60", "500"})
+    public int endpoints;
+
+    // Percentage of inputs with an item frame filter
+    @Param({"0", "50"})
+    public int filteredPercent;
+
+    private List<Endpoint> inputs;
+    private List<Endpoint> outputs;
+    private EndpointTable table;
+    private Item[] routed;
+
+    @Setup
+    public void setUp() {
+        ServerBootstrap.init();
+        Item[] items = {Items.COBBLESTONE, Items.IRON_INGOT, Items.OAK_LOG, Items.WHEAT, Items.REDSTONE, Items.DIAMOND, Items.SAND, Items.BONE};
+        SplittableRandom random = new SplittableRandom(42);
+        inputs = new ArrayList<>();
+        outputs = new ArrayList<>();
+        for (int i = 0; i < endpoints; i++) {
+            BlockPos pos = new BlockPos(random.nextInt(64), 64 + random.nextInt(16), random.nextInt(64));
+            BlockPos prevPipe = pos.west();
+            boolean input = (i & 1) == 0;
+            ReferenceSet<Item> filter = input && random.nextInt(100) < filteredPercent
+                ? ReferenceSets.singleton(items[random.nextInt(items.length)]) : ReferenceSets.emptySet();
+            inputs.add(input ? new Endpoint(pos, pos.above(), random.nextInt(16), NodeKind.INPUT, prevPipe, filter) : null);
+            outputs.add(input ? null : new Endpoint(pos, pos.above(), 0, NodeKind.OUTPUT, prevPipe, ReferenceSets.emptySet()));
+        }
+        inputs.removeIf(endpoint -> endpoint == null);
+        outputs.removeIf(endpoint -> endpoint == null);
+        table = new EndpointTable(inputs, outputs, 0);
+        routed = new Item[table.getOutputs().size()];
+        for (int i = 0; i < routed.length; i++) {
+            routed[i] = items[random.nextInt(items.length)];
+        }
+    }
+
+    /**
+     * Builds an endpoint table, ranking the inputs of every output.
+     * @return The table.
+     */
+    @Benchmark
+    public EndpointTable buildTable() {
+        return new EndpointTable(inputs, outputs, 0);
+    }
+
+    /**
+     * Chooses the first input that takes an item for every output, assuming every input has room.
+     * @return The number of outputs that found an input.
+     */
+    @Benchmark
+    public int routeAllOutputs() {
+        int found = 0;
+        List<Endpoint> tableOutputs = table.getOutputs();
+        for (int i = 0; i < tableOutputs.size(); i++) {
+            for (Endpoint input : table.getRankedInputs(tableOutputs.get(i))) {
+                if (table.takes(input, routed[i])) {
+                    found++;
+                    break;
+                }
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Benchmarks of the pipe network graph: discovery, lookups and pathfinding.
+ */
+package fun.mntale.rustyPipes.benchmarks;
+
+import fun.mntale.rustyPipes.models.PipeNetwork;
+import net.minecraft.core.BlockPos;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building a network from discovered nodes, the node lookup used by every event, and route finding
+ * between the two ends of networks from 10 to 100k nodes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PipeNetworkBenchmark {
+    private static final int PROBES = 4096;
+
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    @Param({"LINE", "GRID"})
+    public SyntheticNetworks.Shape shape;
+
+    private long[] positions;
+    private PipeNetwork network;
+    // Half hits, half misses right next to the network
+    private long[] probes;
+    private int probe;
+    private BlockPos start;
+    private BlockPos end;
+
+    @Setup
+    public void setUp() {
+        positions = SyntheticNetworks.positions(shape, size);
+        network = SyntheticNetworks.build(positions);
+        SplittableRandom random = new SplittableRandom(42);
+        probes = new long[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            long pos = positions[random.nextInt(size)];
+            probes[i] = (i & 1) == 0 ? pos : BlockPos.offset(pos, 0, 1, 0);
+        }
+        start = BlockPos.of(positions[0]);
+        end = BlockPos.of(positions[size - 1]);
+        // Warm the route cache for the cached benchmark
+        network.getRoute(start, end);
+    }
+
+    /**
+     * Builds a network from the nodes found by a scan, as area rebuilds and store restores do.
+     * The scan that finds the nodes is measured by {@link ScanBenchmark}.
+     * @return The network.
+     */
+    @Benchmark
+    public PipeNetwork discover() {
+        return SyntheticNetworks.build(positions);
+    }
+
+    /**
+     * Looks up one node position.
+     * @return Whether the position holds a node.
+     */
+    @Benchmark
+    public boolean hasPipeAt() {
+        return network.hasPipeAt(probes[probe++ & (PROBES - 1)]);
+    }
+
+    /**
+     * Finds the path between the two ends without the route cache.
+     * @return The path.
+     */
+    @Benchmark
+    public List<BlockPos> findPath() {
+        return network.findPath(positions[0], positions[size - 1]);
+    }
+
+    /**
+     * Gets the path between the two ends through the route cache, as the visuals do for every transfer.
+     * @return The path.
+     */
+    @Benchmark
+    public List<BlockPos> getRouteCached() {
+        return network.getRoute(start, end);
+    }
+}
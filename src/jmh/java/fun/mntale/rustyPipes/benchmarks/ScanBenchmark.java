@@ -0,0 +1,120 @@
+/**
+ * Benchmarks of the area scan that discovers pipe network nodes.
+ */
+package fun.mntale.rustyPipes.benchmarks;
+
+import fun.mntale.rustyPipes.utils.SectionSnapshot;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.PalettedContainer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Measures the scan behind an area rebuild: snapshotting the section palettes of the rebuild box, then collecting
+ * the network blocks from the copied sections. The box matches the 49-block cube queued around a changed block,
+ * and spans 4 x 4 x 4 sections of synthetic terrain, some of which hold a 16-block pipe.
+ * The plugin classifies block states by their Bukkit material, which needs a running server; the filter here
+ * names the same blocks directly, so the palette checks and the copy and walk of the sections are measured as in
+ * the plugin, but not the material lookup itself.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ScanBenchmark {
+    private static final int SECTIONS = 4;
+    private static final BlockPos MIN = new BlockPos(7, 7, 7);
+    private static final BlockPos MAX = new BlockPos(55, 55, 55);
+
+    /**
+     * How many of the 64 sections in the box hold pipes.
+     */
+    @Param({"0", "8", "64"})
+    public int pipeSections;
+
+    private Predicate<BlockState> relevant;
+    private Long2ObjectMap<PalettedContainer<BlockState>> states;
+    private SectionSnapshot snapshot;
+
+    @Setup
+    public void setUp() {
+        ServerBootstrap.init();
+        Set<Block> networkBlocks = Set.of(Blocks.COPPER_GRATE, Blocks.COPPER_BLOCK, Blocks.CUT_COPPER, Blocks.CHISELED_COPPER);
+        relevant = state -> networkBlocks.contains(state.getBlock());
+        BlockState[] terrain = {Blocks.STONE.defaultBlockState(), Blocks.DIRT.defaultBlockState(), Blocks.AIR.defaultBlockState()};
+        SplittableRandom random = new SplittableRandom(42);
+        states = new Long2ObjectOpenHashMap<>();
+        int index = 0;
+        for (int sx = 0; sx < SECTIONS; sx++) {
+            for (int sy = 0; sy < SECTIONS; sy++) {
+                for (int sz = 0; sz < SECTIONS; sz++) {
+                    PalettedContainer<BlockState> section = new PalettedContainer<>(Block.BLOCK_STATE_REGISTRY,
+                        Blocks.AIR.defaultBlockState(), PalettedContainer.Strategy.SECTION_STATES);
+                    for (int y = 0; y < 16; y++) {
+                        for (int z = 0; z < 16; z++) {
+                            for (int x = 0; x < 16; x++) {
+                                section.set(x, y, z, terrain[random.nextInt(terrain.length)]);
+                            }
+                        }
+                    }
+                    if (index++ < pipeSections) {
+                        addPipe(section);
+                    }
+                    states.put(SectionPos.asLong(sx, sy, sz), section);
+                }
+            }
+        }
+        snapshot = SectionSnapshot.of(MIN, MAX, states, relevant);
+    }
+
+    /**
+     * Snapshots the palettes of the box, copying only the sections that may hold network blocks.
+     * @return The snapshot.
+     */
+    @Benchmark
+    public SectionSnapshot snapshot() {
+        return SectionSnapshot.of(MIN, MAX, states, relevant);
+    }
+
+    /**
+     * Collects the network blocks from an existing snapshot, as the rebuild workers do.
+     * @return The network blocks by packed position.
+     */
+    @Benchmark
+    public Long2ObjectMap<BlockState> collect() {
+        return snapshot.collect(relevant);
+    }
+
+    /**
+     * Snapshots the box and collects its network blocks.
+     * @return The network blocks by packed position.
+     */
+    @Benchmark
+    public Long2ObjectMap<BlockState> scan() {
+        return SectionSnapshot.of(MIN, MAX, states, relevant).collect(relevant);
+    }
+
+    // Lays a pipe along one row of the section, with an endpoint at each end
+    private static void addPipe(PalettedContainer<BlockState> section) {
+        for (int x = 0; x < 16; x++) {
+            Block block = x == 0 ? Blocks.CUT_COPPER : x == 15 ? Blocks.CHISELED_COPPER : Blocks.COPPER_GRATE;
+            section.set(x, 8, 8, block.defaultBlockState());
+        }
+    }
+}
@@ -0,0 +1,23 @@
+/**
+ * One-time setup of the game registries for benchmarks that use items and block entities.
+ */
+package fun.mntale.rustyPipes.benchmarks;
+
+import net.minecraft.SharedConstants;
+import net.minecraft.server.Bootstrap;
+
+/**
+ * Loads the vanilla registries once per benchmark JVM, without starting a server.
+ */
+final class ServerBootstrap {
+    private ServerBootstrap() {
+    }
+
+    /**
+     * Bootstraps the registries if that has not happened yet in this JVM.
+     */
+    static synchronized void init() {
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+    }
+}
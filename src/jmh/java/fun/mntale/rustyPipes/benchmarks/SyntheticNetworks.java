@@ -0,0 +1,64 @@
+/**
+ * Deterministic pipe networks for benchmarks.
+ */
+package fun.mntale.rustyPipes.benchmarks;
+
+import fun.mntale.rustyPipes.core.NodeKind;
+import fun.mntale.rustyPipes.models.PipeNetwork;
+import net.minecraft.core.BlockPos;
+
+/**
+ * Builds synthetic networks of a given size and shape. The same arguments always give the same network,
+ * so results stay comparable between runs.
+ */
+final class SyntheticNetworks {
+    /**
+     * Layout of a synthetic network.
+     */
+    enum Shape {
+        /** One long pipe; worst case for path lengths. */
+        LINE,
+        /** A square floor of pipes; many equal paths and dense neighbour masks. */
+        GRID
+    }
+
+    private SyntheticNetworks() {
+    }
+
+    /**
+     * Gets the packed node positions of a network, in flood-fill order from the first node.
+     * @param shape The layout.
+     * @param size The number of nodes.
+     * @return The packed positions; the first and last are the two ends of the network.
+     */
+    static long[] positions(Shape shape, int size) {
+        long[] positions = new long[size];
+        int side = (int) Math.ceil(Math.sqrt(size));
+        for (int i = 0; i < size; i++) {
+            positions[i] = switch (shape) {
+                // Folded into rows of 256 so the line stays inside a world
+                case LINE -> {
+                    int row = i / 256;
+                    int col = (row & 1) == 0 ? i % 256 : 255 - i % 256;
+                    yield BlockPos.asLong(col, 64, row);
+                }
+                case GRID -> BlockPos.asLong(i % side, 64, i / side);
+            };
+        }
+        return positions;
+    }
+
+    /**
+     * Builds a network from positions; both ends become endpoints, everything else is pipe.
+     * @param positions The packed positions.
+     * @return The network.
+     */
+    static PipeNetwork build(long[] positions) {
+        PipeNetwork network = new PipeNetwork("benchmark");
+        for (int i = 0; i < positions.length; i++) {
+            boolean end = i == 0 || i == positions.length - 1;
+            network.addPipe(positions[i], end ? NodeKind.BOTH : NodeKind.PIPE);
+        }
+        return network;
+    }
+}
@@ -0,0 +1,134 @@
+/**
+ * Benchmarks of moving items between containers.
+ */
+package fun.mntale.rustyPipes.benchmarks;
+
+import fun.mntale.rustyPipes.utils.ContainerSlotIndex;
+import fun.mntale.rustyPipes.utils.NMSUtils;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.Items;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.entity.BaseContainerBlockEntity;
+import net.minecraft.world.level.block.entity.BarrelBlockEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one 16-item transfer into destination containers with different contents, with the slot indexes
+ * already built as they are between events.
+ * A transfer changes the containers, but per-invocation setup is far too coarse for calls this short, so each
+ * invocation puts back the counts it changed instead. The undo is part of the score; it compares the slot counts
+ * and touches only the one or two slots the transfer filled.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TransferBenchmark {
+    /**
+     * Contents of the destination container.
+     */
+    public enum Layout {
+        /** Nothing in it; the first empty slot takes the items. */
+        EMPTY,
+        /** Random items in most slots, one matching partial stack at the end. */
+        MIXED,
+        /** Full stacks in every slot but the last. */
+        NEARLY_FULL,
+        /** Partial stacks of the moved item spread over the container. */
+        PARTIAL_STACKS
+    }
+
+    private static final Item[] FILLERS = {Items.IRON_INGOT, Items.OAK_LOG, Items.WHEAT, Items.REDSTONE, Items.DIAMOND, Items.SAND, Items.BONE};
+
+    @Param({"EMPTY", "MIXED", "NEARLY_FULL", "PARTIAL_STACKS"})
+    public Layout layout;
+
+    private BaseContainerBlockEntity source;
+    private BaseContainerBlockEntity dest;
+    private ContainerSlotIndex sourceIndex;
+    private ContainerSlotIndex destIndex;
+    // Destination slot counts after filling, for undoing a transfer
+    private int[] destCounts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ServerBootstrap.init();
+        source = new BarrelBlockEntity(BlockPos.ZERO, Blocks.BARREL.defaultBlockState());
+        dest = new BarrelBlockEntity(BlockPos.ZERO.above(), Blocks.BARREL.defaultBlockState());
+        fill();
+    }
+
+    // Fills both containers for the layout and builds their indexes
+    private void fill() {
+        source.clearContent();
+        dest.clearContent();
+        source.setItem(0, new ItemStack(Items.COBBLESTONE, 64));
+        SplittableRandom random = new SplittableRandom(42);
+        int size = dest.getContainerSize();
+        for (int slot = 0; slot < size; slot++) {
+            ItemStack stack = switch (layout) {
+                case EMPTY -> ItemStack.EMPTY;
+                case MIXED -> slot == size - 1 ? new ItemStack(Items.COBBLESTONE, 32)
+                    : random.nextInt(4) == 0 ? ItemStack.EMPTY : new ItemStack(FILLERS[random.nextInt(FILLERS.length)], 1 + random.nextInt(64));
+                case NEARLY_FULL -> slot == size - 1 ? ItemStack.EMPTY : new ItemStack(FILLERS[slot % FILLERS.length], 64);
+                case PARTIAL_STACKS -> slot % 3 == 0 ? new ItemStack(Items.COBBLESTONE, 60) : new ItemStack(FILLERS[slot % FILLERS.length], 64);
+            };
+            dest.setItem(slot, stack);
+        }
+        destCounts = new int[size];
+        for (int slot = 0; slot < size; slot++) {
+            destCounts[slot] = dest.getItem(slot).getCount();
+        }
+        sourceIndex = ContainerSlotIndex.build(source);
+        destIndex = ContainerSlotIndex.build(dest);
+    }
+
+    /**
+     * Moves 16 items out of the first source slot, then puts both containers back as they were.
+     * @return The number of items moved.
+     */
+    @Benchmark
+    public int transferItem() {
+        int moved = NMSUtils.transferItem(source, sourceIndex, 0, dest, destIndex, 16);
+        restore();
+        return moved;
+    }
+
+    /**
+     * Builds a slot index for the destination, as the first transfer after a container event does.
+     * @return The index.
+     */
+    @Benchmark
+    public ContainerSlotIndex buildIndex() {
+        return ContainerSlotIndex.build(dest);
+    }
+
+    // Undoes a transfer: moved items only ever grow matching stacks or fill empty slots of the destination,
+    // and shrink the first source stack without emptying it
+    private void restore() {
+        for (int slot = 0; slot < destCounts.length; slot++) {
+            ItemStack stack = dest.getItem(slot);
+            if (stack.getCount() == destCounts[slot]) continue;
+            if (destCounts[slot] == 0) {
+                dest.setItem(slot, ItemStack.EMPTY);
+            } else {
+                stack.setCount(destCounts[slot]);
+            }
+            destIndex.update(slot);
+        }
+        source.getItem(0).setCount(64);
+        sourceIndex.update(0);
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * JMH benchmarks for the hot paths of the pipe engine, run with {@code ./gradlew jmh}.
+ */
+package fun.mntale.rustyPipes.benchmarks;
@@ -4,18 +4,31 @@
  */
 package fun.mntale.rustyPipes;
 
+import fun.mntale.rustyPipes.commands.RustyPipesCommand;
 import fun.mntale.rustyPipes.managers.PipeNetworkManager;
 import fun.mntale.rustyPipes.listeners.PipeBlockListener;
+import fun.mntale.rustyPipes.metrics.MetricsExporter;
 import fun.mntale.rustyPipes.utils.DebugLogger;
+import fun.mntale.rustyPipes.utils.PipeScheduler;
+import fun.mntale.rustyPipes.utils.PipeSettings;
+import io.papermc.paper.plugin.lifecycle.event.types.LifecycleEvents;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.World;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.io.File;
+import java.util.List;
+
 /**
  * The main entry point for the RustyPipes Paper plugin using NMS for optimal performance.
  */
 public final class RustyPipes extends JavaPlugin {
     private PipeNetworkManager pipeNetworkManager;
     private PipeBlockListener pipeBlockListener;
-    private int tickTaskId = -1;
+    private ScheduledTask tickTask;
+    private ScheduledTask flushTask;
+    private ScheduledTask saveTask;
+    private MetricsExporter metricsExporter;
 
     /**
      * Called when the plugin is enabled. Registers listeners and starts the item transfer task.
@@ -23,15 +36,50 @@ public final class RustyPipes extends JavaPlugin {
     @Override
     public void onEnable() {
         try {
+            // Load configuration
+            saveDefaultConfig();
+            PipeSettings settings = PipeSettings.load(getConfig());
+
             // Initialize managers
-            pipeNetworkManager = new PipeNetworkManager();
+            pipeNetworkManager = new PipeNetworkManager(settings);
             
+            // Restore saved networks before any chunk event can rebuild them; on the first start, scan the region files instead
+            boolean firstStart = pipeNetworkManager.isStoreEmpty();
+            for (World world : getServer().getWorlds()) {
+                if (firstStart && settings.isScanOnFirstStart()) {
+                    pipeNetworkManager.scanWorld(world);
+                } else {
+                    pipeNetworkManager.loadWorld(world);
+                }
+            }
+
             // Register listeners
             pipeBlockListener = new PipeBlockListener(pipeNetworkManager);
             getServer().getPluginManager().registerEvents(pipeBlockListener, this);
+
+            // Register commands
+            RustyPipesCommand command = new RustyPipesCommand(pipeNetworkManager);
+            getLifecycleManager().registerEventHandler(LifecycleEvents.COMMANDS, event ->
+                event.registrar().register("rustypipes", "RustyPipes admin tools", List.of("rp"), command));
             
-            // Schedule item transfer tick every 10 ticks (0.5 seconds)
-            tickTaskId = getServer().getScheduler().runTaskTimer(this, pipeNetworkManager::tick, 20, 20L).getTaskId();
+            // Global region tasks; transfers are handed on to the regions owning the containers
+            PipeScheduler scheduler = pipeNetworkManager.getScheduler();
+            // Run the networks due on each tick; each network runs once per transfer interval
+            tickTask = scheduler.runGlobalTimer(pipeNetworkManager::tick, 1L, 1L);
+            // Apply queued block changes once per tick
+            flushTask = scheduler.runGlobalTimer(pipeNetworkManager::flushPendingChanges, 1L, 1L);
+            // Save changed networks periodically
+            long saveInterval = settings.getSaveIntervalSeconds() * 20L;
+            saveTask = scheduler.runGlobalTimer(() -> pipeNetworkManager.saveDirtyWorlds(true), saveInterval, saveInterval);
+
+            // Publish metrics if configured
+            metricsExporter = new MetricsExporter(pipeNetworkManager.getMetrics());
+            if (settings.getMetricsHttpPort() > 0) {
+                metricsExporter.startHttp(settings.getMetricsHttpPort());
+            }
+            if (settings.getMetricsFileInterval() > 0) {
+                metricsExporter.startFile(scheduler, new File(getDataFolder(), "metrics.prom"), settings.getMetricsFileInterval());
+            }
             
             DebugLogger.log("<#00ff99>RustyPipes enabled successfully!</#00ff99> <gray>Using NMS for optimal performance.</gray>");
             
@@ -48,14 +96,28 @@ public final class RustyPipes extends JavaPlugin {
     @Override
     public void onDisable() {
         try {
-            // Cancel the tick task
-            if (tickTaskId != -1) {
-                getServer().getScheduler().cancelTask(tickTaskId);
-                tickTaskId = -1;
+            // Cancel the tick tasks
+            for (ScheduledTask task : new ScheduledTask[] {tickTask, flushTask, saveTask}) {
+                if (task != null) {
+                    task.cancel();
+                }
+            }
+            tickTask = null;
+            flushTask = null;
+            saveTask = null;
+            if (metricsExporter != null) {
+                metricsExporter.stop();
+                metricsExporter = null;
             }
             
             // Clear all networks
             if (pipeNetworkManager != null) {
+                pipeNetworkManager.getVisualManager().shutdown();
+                pipeNetworkManager.getRebuildExecutor().shutdown();
+                // Apply queued changes and save synchronously; async saves that have not run yet are written first,
+                // and one that is still running is waited for
+                pipeNetworkManager.flushPendingChanges();
+                pipeNetworkManager.saveDirtyWorlds(false);
                 for (String worldName : pipeNetworkManager.getAllNetworks().keySet()) {
                     pipeNetworkManager.clearNetworks(worldName);
                 }
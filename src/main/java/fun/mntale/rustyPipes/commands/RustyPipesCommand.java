@@ -0,0 +1,130 @@
+/**
+ * The /rustypipes admin command.
+ */
+package fun.mntale.rustyPipes.commands;
+
+import fun.mntale.rustyPipes.core.BlockPositions;
+import fun.mntale.rustyPipes.managers.PipeNetworkManager;
+import fun.mntale.rustyPipes.metrics.NetworkProfiler;
+import io.papermc.paper.command.brigadier.BasicCommand;
+import io.papermc.paper.command.brigadier.CommandSourceStack;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.command.CommandSender;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Admin tools for finding expensive networks.
+ * {@code /rustypipes profile [seconds]} samples what each network costs the global region for a while, then
+ * lists the heaviest networks with their location, size, throughput and milliseconds per tick; clicking a
+ * location teleports there.
+ */
+public class RustyPipesCommand implements BasicCommand {
+    private static final String PERMISSION = "rustypipes.admin";
+    private static final int DEFAULT_SECONDS = 10;
+    private static final int MAX_SECONDS = 300;
+    private static final int SHOWN = 10;
+
+    private final PipeNetworkManager manager;
+
+    /**
+     * Constructs a RustyPipesCommand.
+     * @param manager The pipe network manager to profile.
+     */
+    public RustyPipesCommand(PipeNetworkManager manager) {
+        this.manager = manager;
+    }
+
+    @Override
+    public void execute(CommandSourceStack source, String[] args) {
+        CommandSender sender = source.getSender();
+        if (args.length == 0 || !args[0].equalsIgnoreCase("profile")) {
+            send(sender, "<gray>Usage:</gray> <#00eaff>/rustypipes profile [seconds]</#00eaff>");
+            return;
+        }
+        int seconds = DEFAULT_SECONDS;
+        if (args.length > 1) {
+            try {
+                seconds = Integer.parseInt(args[1]);
+            } catch (NumberFormatException e) {
+                seconds = -1;
+            }
+            if (seconds < 1 || seconds > MAX_SECONDS) {
+                send(sender, "<#ff6b6b>Seconds must be between 1 and " + MAX_SECONDS + ".</#ff6b6b>");
+                return;
+            }
+        }
+        int duration = seconds;
+        // Profiling state belongs to the global region, like the networks it samples
+        manager.getScheduler().runGlobal(() -> {
+            if (!manager.startProfile(duration * 20L, samples -> report(sender, duration, samples))) {
+                send(sender, "<#ff6b6b>A profile is already running.</#ff6b6b>");
+                return;
+            }
+            send(sender, "<#00ff99>Profiling pipe networks for " + duration + "s...</#00ff99>");
+        });
+    }
+
+    @Override
+    public Collection<String> suggest(CommandSourceStack source, String[] args) {
+        if (args.length <= 1) return List.of("profile");
+        if (args.length == 2 && args[0].equalsIgnoreCase("profile")) return List.of("10", "30", "60");
+        return List.of();
+    }
+
+    @Override
+    public String permission() {
+        return PERMISSION;
+    }
+
+    // Lists the heaviest networks of a finished session; runs on the global region thread
+    private static void report(CommandSender sender, int seconds, List<NetworkProfiler.Sample> samples) {
+        if (samples.isEmpty()) {
+            send(sender, "<gray>No network ran during the last " + seconds + "s.</gray>");
+            return;
+        }
+        double total = 0;
+        for (NetworkProfiler.Sample sample : samples) {
+            total += sample.millisPerTick();
+        }
+        send(sender, "<#ffb300>Pipe networks over " + seconds + "s</#ffb300> <gray>|</gray> <#00ff99>" + samples.size()
+            + " active, " + format(total) + " ms/tick total</#00ff99>");
+        for (int i = 0; i < Math.min(SHOWN, samples.size()); i++) {
+            NetworkProfiler.Sample sample = samples.get(i);
+            send(sender, "<gray>#" + (i + 1) + "</gray> " + location(sample) + " <gray>|</gray> <#00eaff>"
+                + sample.network().getTotalComponents() + "</#00eaff> <gray>nodes,</gray> <#00eaff>"
+                + sample.network().getEndpointKinds().size() + "</#00eaff> <gray>endpoints,</gray> <#00eaff>"
+                + sample.itemsMoved() + "</#00eaff> <gray>items,</gray> <#ffb300>" + format(sample.millisPerTick())
+                + " ms/tick</#ffb300>" + (sample.rebuilds() > 0 ? " <gray>(" + sample.rebuilds() + " rebuilds)</gray>" : ""));
+        }
+    }
+
+    // A network's location as a clickable teleport, or a note if the network no longer exists
+    private static String location(NetworkProfiler.Sample sample) {
+        World world = Bukkit.getWorld(sample.network().getWorldName());
+        if (world == null || sample.network().getTotalComponents() == 0) {
+            return "<gray>(removed since)</gray>";
+        }
+        long pos = sample.network().getPositions().iterator().nextLong();
+        int x = BlockPositions.getX(pos);
+        int y = BlockPositions.getY(pos);
+        int z = BlockPositions.getZ(pos);
+        String teleport = "/execute in " + world.getKey().asString() + " run tp @s " + x + " " + (y + 1) + " " + z;
+        return "<click:run_command:'" + teleport + "'><hover:show_text:'<gray>Teleport</gray>'><#00eaff>"
+            + world.getName() + " " + x + " " + y + " " + z + "</#00eaff></hover></click>";
+    }
+
+    // Milliseconds with two decimals
+    private static String format(double millis) {
+        return String.format(Locale.ROOT, "%.2f", millis);
+    }
+
+    // Sends a MiniMessage-formatted message with the plugin prefix
+    private static void send(CommandSender sender, String miniMessage) {
+        sender.sendMessage(MiniMessage.miniMessage().deserialize("<gray>[RustyPipes] </gray>" + miniMessage));
+    }
+}
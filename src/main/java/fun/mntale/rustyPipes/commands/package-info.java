@@ -0,0 +1,4 @@
+/**
+ * Contains the plugin's commands, registered through Paper's Brigadier command API.
+ */
+package fun.mntale.rustyPipes.commands;
@@ -13,11 +13,24 @@ import org.bukkit.event.block.BlockPlaceEvent;
 import org.bukkit.event.block.BlockBreakEvent;
 import org.bukkit.event.block.BlockExplodeEvent;
 import org.bukkit.event.entity.EntityExplodeEvent;
+import io.papermc.paper.event.player.PlayerItemFrameChangeEvent;
+import org.bukkit.entity.Hanging;
+import org.bukkit.entity.ItemFrame;
+import org.bukkit.event.hanging.HangingBreakEvent;
+import org.bukkit.event.hanging.HangingPlaceEvent;
 import org.bukkit.event.world.ChunkLoadEvent;
 import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldLoadEvent;
 import org.bukkit.block.Block;
 import org.bukkit.event.block.BlockRedstoneEvent;
 import org.bukkit.event.block.BlockPhysicsEvent;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.inventory.InventoryMoveItemEvent;
+import org.bukkit.event.inventory.InventoryPickupItemEvent;
+import org.bukkit.Location;
+import org.bukkit.inventory.Inventory;
 
 /**
  * Listens for block events and updates pipe networks using NMS for optimal performance.
@@ -34,7 +47,7 @@ public class PipeBlockListener implements Listener {
     }
 
     /**
-     * Called when a block is placed. Updates pipe networks if relevant.
+     * Called when a block is placed. Adds the block to pipe networks if relevant.
      * @param event The block place event.
      */
     @EventHandler(priority = EventPriority.MONITOR)
@@ -42,13 +55,15 @@ public class PipeBlockListener implements Listener {
         if (event.isCancelled()) return;
         
         Block block = event.getBlockPlaced();
-        if (NMSUtils.isPipe(block.getType()) || NMSUtils.isEndpoint(block.getType()) || NMSUtils.isContainer(block.getType())) {
-            networkManager.updateNetworks(block);
+        if (PipeNetworkManager.isNetworkBlock(block.getType())) {
+            networkManager.addNode(block);
+        } else if (NMSUtils.isContainer(block.getType())) {
+            networkManager.onContainerChanged(block);
         }
     }
 
     /**
-     * Called when a block is broken. Updates pipe networks if relevant.
+     * Called when a block is broken. Removes the block from pipe networks if relevant.
      * @param event The block break event.
      */
     @EventHandler(priority = EventPriority.MONITOR)
@@ -56,13 +71,15 @@ public class PipeBlockListener implements Listener {
         if (event.isCancelled()) return;
         
         Block block = event.getBlock();
-        if (NMSUtils.isPipe(block.getType()) || NMSUtils.isEndpoint(block.getType()) || NMSUtils.isContainer(block.getType())) {
-            networkManager.updateNetworks(block);
+        if (PipeNetworkManager.isNetworkBlock(block.getType())) {
+            networkManager.removeNode(block);
+        } else if (NMSUtils.isContainer(block.getType())) {
+            networkManager.onContainerChanged(block);
         }
     }
 
     /**
-     * Called when blocks are destroyed by explosions. Updates pipe networks if relevant.
+     * Called when blocks are destroyed by explosions. Removes destroyed pipes from their networks.
      * @param event The block explode event.
      */
     @EventHandler(priority = EventPriority.MONITOR)
@@ -70,14 +87,16 @@ public class PipeBlockListener implements Listener {
         if (event.isCancelled()) return;
         
         for (Block block : event.blockList()) {
-            if (NMSUtils.isPipe(block.getType()) || NMSUtils.isEndpoint(block.getType()) || NMSUtils.isContainer(block.getType())) {
-                networkManager.updateNetworks(block);
+            if (PipeNetworkManager.isNetworkBlock(block.getType())) {
+                networkManager.removeNode(block);
+            } else if (NMSUtils.isContainer(block.getType())) {
+                networkManager.onContainerChanged(block);
             }
         }
     }
 
     /**
-     * Called when blocks are destroyed by entity explosions. Updates pipe networks if relevant.
+     * Called when blocks are destroyed by entity explosions. Removes destroyed pipes from their networks.
      * @param event The entity explode event.
      */
     @EventHandler(priority = EventPriority.MONITOR)
@@ -85,8 +104,10 @@ public class PipeBlockListener implements Listener {
         if (event.isCancelled()) return;
         
         for (Block block : event.blockList()) {
-            if (NMSUtils.isPipe(block.getType()) || NMSUtils.isEndpoint(block.getType()) || NMSUtils.isContainer(block.getType())) {
-                networkManager.updateNetworks(block);
+            if (PipeNetworkManager.isNetworkBlock(block.getType())) {
+                networkManager.removeNode(block);
+            } else if (NMSUtils.isContainer(block.getType())) {
+                networkManager.onContainerChanged(block);
             }
         }
     }
@@ -97,19 +118,7 @@ public class PipeBlockListener implements Listener {
      */
     @EventHandler(priority = EventPriority.MONITOR)
     public void onChunkLoad(ChunkLoadEvent event) {
-        // Scan chunk for pipe networks when loaded
-        // This ensures networks are detected when chunks are loaded
-        for (int x = 0; x < 16; x++) {
-            for (int y = event.getWorld().getMinHeight(); y < event.getWorld().getMaxHeight(); y++) {
-                for (int z = 0; z < 16; z++) {
-                    Block block = event.getChunk().getBlock(x, y, z);
-                    if (NMSUtils.isPipe(block.getType()) || NMSUtils.isEndpoint(block.getType())) {
-                        networkManager.updateNetworks(block);
-                        return; // Only need to trigger once per chunk
-                    }
-                }
-            }
-        }
+        networkManager.onChunkLoad(event.getChunk());
     }
 
     /**
@@ -123,14 +132,120 @@ public class PipeBlockListener implements Listener {
     }
 
     /**
-     * Called when a block receives a redstone signal. Updates pipe networks if relevant.
+     * Called when a world is loaded after startup. Restores the networks saved for it.
+     * @param event The world load event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldLoad(WorldLoadEvent event) {
+        networkManager.loadWorld(event.getWorld());
+    }
+
+    /**
+     * Called when a block receives a block update. Refreshes the cached power if it is an endpoint.
+     * @param event The physics event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPhysics(BlockPhysicsEvent event) {
+        networkManager.onBlockPhysics(event.getBlock());
+    }
+
+    /**
+     * Called when a block receives a redstone signal. Refreshes the endpoints of nearby networks.
      * @param event The redstone event.
      */
     @EventHandler(priority = EventPriority.MONITOR)
     public void onBlockRedstone(BlockRedstoneEvent event) {
-        Block block = event.getBlock();
-        if (NMSUtils.isEndpoint(block.getType())) {
-            networkManager.updateNetworks(block);
+        if (event.getOldCurrent() == event.getNewCurrent()) return;
+        networkManager.onPowerChanged(event.getBlock());
+    }
+
+    /**
+     * Called when a hopper or dropper moves items between inventories. Wakes networks using either side.
+     * @param event The inventory move event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryMove(InventoryMoveItemEvent event) {
+        inventoryChanged(event.getSource());
+        inventoryChanged(event.getDestination());
+    }
+
+    /**
+     * Called when a hopper picks up an item entity. Wakes networks using the hopper.
+     * @param event The inventory pickup event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryPickup(InventoryPickupItemEvent event) {
+        inventoryChanged(event.getInventory());
+    }
+
+    /**
+     * Called when a player clicks in an inventory. Wakes networks using the container.
+     * @param event The inventory click event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryClick(InventoryClickEvent event) {
+        inventoryChanged(event.getInventory());
+    }
+
+    /**
+     * Called when a player drags items across an inventory. Wakes networks using the container.
+     * @param event The inventory drag event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryDrag(InventoryDragEvent event) {
+        inventoryChanged(event.getInventory());
+    }
+
+    /**
+     * Called when a player closes an inventory. Wakes networks using the container, covering changes no other event reported.
+     * @param event The inventory close event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onInventoryClose(InventoryCloseEvent event) {
+        inventoryChanged(event.getInventory());
+    }
+
+    /**
+     * Called when an item frame is hung. Re-reads the filters of an endpoint it hangs on.
+     * @param event The hanging place event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onHangingPlace(HangingPlaceEvent event) {
+        filterChanged(event.getEntity());
+    }
+
+    /**
+     * Called when an item frame is broken. Re-reads the filters of an endpoint it hung on.
+     * @param event The hanging break event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onHangingBreak(HangingBreakEvent event) {
+        filterChanged(event.getEntity());
+    }
+
+    /**
+     * Called when a player puts an item into, takes it out of, or rotates an item frame.
+     * Re-reads the filters of an endpoint the frame hangs on.
+     * @param event The item frame change event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onItemFrameChange(PlayerItemFrameChangeEvent event) {
+        filterChanged(event.getItemFrame());
+    }
+
+    // Forwards a change of an item frame to the network manager; other hanging entities never act as filters
+    private void filterChanged(Hanging hanging) {
+        if (!(hanging instanceof ItemFrame)) return;
+        Block attached = NMSUtils.getAttachedBlock(hanging);
+        if (PipeNetworkManager.isNetworkBlock(attached.getType())) {
+            networkManager.onFilterChanged(attached);
         }
     }
-}
\ No newline at end of file
+
+    // Forwards a change of a block inventory to the network manager; entity and virtual inventories are ignored
+    private void inventoryChanged(Inventory inventory) {
+        Location location = inventory.getLocation();
+        if (location == null || location.getWorld() == null) return;
+        networkManager.onInventoryChanged(location.getWorld(), location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+}
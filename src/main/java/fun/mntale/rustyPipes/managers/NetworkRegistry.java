@@ -0,0 +1,178 @@
+/**
+ * Copy-on-write registry of the networks of each world.
+ */
+package fun.mntale.rustyPipes.managers;
+
+import fun.mntale.rustyPipes.models.PipeNetwork;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the networks of each world as immutable, generation-stamped snapshots.
+ * The writer (the global region thread) edits a private working list per world and publishes a new snapshot
+ * once per batch of edits, so readers on any thread get a consistent list without locking or copying.
+ * A snapshot fixes which networks exist; the networks themselves are still owned by the global region.
+ * Each snapshot also carries the endpoint positions of its networks, so region threads can filter block events
+ * without touching the global region's node index.
+ * The generation counts every edit. Async work captures it when it starts and asks on completion whether its world
+ * was replaced wholesale since (cleared, or rebuilt by a region scan); such results describe a graph that no
+ * longer exists and must be dropped instead of applied.
+ */
+public class NetworkRegistry {
+    private static final Snapshot EMPTY = new Snapshot(0, List.of(), Long2ObjectMaps.emptyMap());
+
+    /**
+     * The networks of one world as of one generation.
+     * @param generation The generation the snapshot was published at.
+     * @param networks Immutable list of the world's networks.
+     * @param endpoints Unmodifiable map of packed endpoint node position to the network holding it.
+     */
+    public record Snapshot(long generation, List<PipeNetwork> networks, Long2ObjectMap<PipeNetwork> endpoints) {}
+
+    private final Map<String, Snapshot> published = new ConcurrentHashMap<>();
+    // Writer side, global region only
+    private final Map<String, List<PipeNetwork>> working = new HashMap<>();
+    private final Set<String> changed = new HashSet<>();
+    // Per world, the generation of the last wholesale replacement
+    private final Map<String, Long> replacedAt = new HashMap<>();
+    private volatile long publishedGeneration;
+    private long generation;
+
+    /**
+     * Gets the published networks of a world. Safe from any thread.
+     * @param worldName The world name.
+     * @return The latest published snapshot; empty with generation 0 if the world has no networks.
+     */
+    public Snapshot get(String worldName) {
+        return published.getOrDefault(worldName, EMPTY);
+    }
+
+    /**
+     * Gets the published networks of every world. Safe from any thread.
+     * @return Unmodifiable live view of world name to latest snapshot; each snapshot is consistent on its own.
+     */
+    public Map<String, Snapshot> getAll() {
+        return Collections.unmodifiableMap(published);
+    }
+
+    /**
+     * Gets the generation of the latest publish. Safe from any thread.
+     * @return The published generation.
+     */
+    public long getPublishedGeneration() {
+        return publishedGeneration;
+    }
+
+    /**
+     * Gets the current generation, including unpublished edits. Global region only.
+     * @return The generation to capture before starting async work.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Adds a network to a world. Global region only.
+     * @param worldName The world name.
+     * @param network The network.
+     */
+    public void add(String worldName, PipeNetwork network) {
+        working(worldName).add(network);
+        edited(worldName);
+    }
+
+    /**
+     * Removes a network from a world. Global region only.
+     * @param worldName The world name.
+     * @param network The network.
+     */
+    public void remove(String worldName, PipeNetwork network) {
+        List<PipeNetwork> list = working.get(worldName);
+        if (list != null && list.remove(network)) {
+            edited(worldName);
+        }
+    }
+
+    /**
+     * Records that nodes were added to or removed from networks of a world without adding or removing a network,
+     * so the next publish refreshes its endpoint positions. Global region only.
+     * @param worldName The world name.
+     */
+    public void nodesChanged(String worldName) {
+        changed.add(worldName);
+    }
+
+    /**
+     * Removes every network of a world, marking it as replaced wholesale. Global region only.
+     * @param worldName The world name.
+     */
+    public void clear(String worldName) {
+        working.remove(worldName);
+        edited(worldName);
+        replacedAt.put(worldName, generation);
+    }
+
+    /**
+     * Checks if a world was cleared after some generation, so results computed against it are obsolete.
+     * Global region only.
+     * @param worldName The world name.
+     * @param since The generation captured when the work started.
+     * @return True if the world was replaced wholesale since.
+     */
+    public boolean isReplacedSince(String worldName, long since) {
+        return replacedAt.getOrDefault(worldName, 0L) > since;
+    }
+
+    /**
+     * Publishes new snapshots for the worlds edited since the last publish; does nothing if none were.
+     * Global region only; call at the end of every batch of edits.
+     */
+    public void publish() {
+        if (changed.isEmpty()) return;
+        for (String worldName : changed) {
+            List<PipeNetwork> list = working.get(worldName);
+            if (list == null || list.isEmpty()) {
+                published.remove(worldName);
+            } else {
+                published.put(worldName, new Snapshot(generation, List.copyOf(list), endpoints(list)));
+            }
+        }
+        changed.clear();
+        publishedGeneration = generation;
+    }
+
+    // Indexes the endpoint nodes of a world's networks
+    private static Long2ObjectMap<PipeNetwork> endpoints(List<PipeNetwork> networks) {
+        Long2ObjectOpenHashMap<PipeNetwork> endpoints = new Long2ObjectOpenHashMap<>();
+        for (PipeNetwork network : networks) {
+            LongIterator it = network.getEndpointKinds().keySet().iterator();
+            while (it.hasNext()) {
+                endpoints.put(it.nextLong(), network);
+            }
+        }
+        endpoints.trim();
+        return Long2ObjectMaps.unmodifiable(endpoints);
+    }
+
+    // The writer's list of a world, created on first use
+    private List<PipeNetwork> working(String worldName) {
+        return working.computeIfAbsent(worldName, w -> new ArrayList<>());
+    }
+
+    // Stamps an edit with a new generation
+    private void edited(String worldName) {
+        generation++;
+        changed.add(worldName);
+    }
+}
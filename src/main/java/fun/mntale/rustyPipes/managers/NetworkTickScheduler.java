@@ -0,0 +1,233 @@
+/**
+ * Spreads network ticks over time under a per-tick time budget.
+ */
+package fun.mntale.rustyPipes.managers;
+
+import fun.mntale.rustyPipes.models.PipeNetwork;
+import fun.mntale.rustyPipes.utils.PipeSettings;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+
+import java.util.*;
+import java.util.function.BiPredicate;
+
+/**
+ * Decides which networks run on each server tick.
+ * Every network runs once per transfer interval, but networks are assigned staggered phases so the work is
+ * spread over the whole interval instead of landing on one tick. Each tick runs due networks, most backlogged
+ * first, until the time budget is spent; the rest stay due and run first on the next tick. Under load the
+ * interval is stretched, so pipes slow down instead of adding to the lag.
+ * A network whose run moved nothing falls asleep and is skipped until something wakes it (a container, topology
+ * or power change) or a slow heartbeat comes due, so idle networks cost nothing between events.
+ * Must be used from the global region thread (the main thread on Paper).
+ */
+public class NetworkTickScheduler {
+    private final PipeSettings settings;
+    private final BiPredicate<World, PipeNetwork> runner;
+    private final Map<PipeNetwork, State> states = new HashMap<>();
+    // Scheduled networks by due tick. Rescheduling leaves the old entry behind; it is skipped when it comes up
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>(Comparator.comparingLong(Entry::dueTick));
+    // Due networks that did not fit into the budget of an earlier tick
+    private final List<State> carried = new ArrayList<>();
+    private long currentTick;
+    private int nextPhase;
+    private int interval;
+    private int sleeping;
+
+    // A queue entry; current only while it matches its state's due tick and the state is still queued
+    private record Entry(State state, long dueTick) {
+        boolean isCurrent() {
+            return state.queued && state.dueTick == dueTick;
+        }
+    }
+
+    // Scheduling state of one network
+    private static final class State {
+        final World world;
+        final PipeNetwork network;
+        long dueTick;
+        // Has a current entry in the queue, as opposed to being carried over or running
+        boolean queued;
+        // Items moved by the last run; a network that keeps moving full batches has items waiting
+        int lastMoved;
+        // Whether the last run saw all endpoints; runs that could not may not put the network to sleep
+        boolean complete;
+        // Something relevant changed since the last run
+        boolean woken = true;
+        boolean asleep;
+        boolean alive = true;
+
+        State(World world, PipeNetwork network) {
+            this.world = world;
+            this.network = network;
+        }
+
+        // Higher runs first: recent throughput plus how long the network has been waiting
+        long priority(long now) {
+            return lastMoved + Math.max(0, now - dueTick);
+        }
+    }
+
+    /**
+     * Constructs a NetworkTickScheduler.
+     * @param settings The plugin settings holding the interval and budget.
+     * @param runner Runs one network; returns true if the run saw every endpoint, so moving nothing means idle.
+     */
+    public NetworkTickScheduler(PipeSettings settings, BiPredicate<World, PipeNetwork> runner) {
+        this.settings = settings;
+        this.runner = runner;
+        this.interval = settings.getTransferInterval();
+    }
+
+    /**
+     * Registers the networks of a world that are not scheduled yet and forgets networks that no longer exist.
+     * New networks get staggered phases, so networks created together do not run together.
+     * @param worlds The current networks per world.
+     */
+    public void sync(Map<World, List<PipeNetwork>> worlds) {
+        Set<PipeNetwork> present = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Map.Entry<World, List<PipeNetwork>> entry : worlds.entrySet()) {
+            for (PipeNetwork network : entry.getValue()) {
+                present.add(network);
+                if (states.containsKey(network)) continue;
+                State state = new State(entry.getKey(), network);
+                states.put(network, state);
+                schedule(state, currentTick + 1 + (nextPhase++ % interval));
+            }
+        }
+        Iterator<State> it = states.values().iterator();
+        while (it.hasNext()) {
+            State state = it.next();
+            if (!present.contains(state.network)) {
+                state.alive = false;
+                if (state.asleep) sleeping--;
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Runs the networks due on this tick within the time budget.
+     * Called once per server tick.
+     */
+    public void tick() {
+        currentTick++;
+        if (currentTick % 20 == 0) {
+            interval = adaptInterval();
+        }
+        List<State> ready = new ArrayList<>(carried);
+        carried.clear();
+        while (!queue.isEmpty() && queue.peek().dueTick() <= currentTick) {
+            Entry entry = queue.poll();
+            if (!entry.isCurrent()) continue;
+            entry.state().queued = false;
+            ready.add(entry.state());
+        }
+        if (ready.isEmpty()) return;
+        long now = currentTick;
+        ready.sort(Comparator.comparingLong((State state) -> state.priority(now)).reversed());
+        long deadline = System.nanoTime() + settings.getTickBudgetNanos();
+        boolean ranAny = false;
+        for (int i = 0; i < ready.size(); i++) {
+            State state = ready.get(i);
+            if (!state.alive) continue;
+            if (!state.asleep && state.complete && state.lastMoved == 0 && !state.woken) {
+                // Idle since its last run: sleep until woken or until the heartbeat
+                state.asleep = true;
+                sleeping++;
+                schedule(state, currentTick + settings.getSleepHeartbeat());
+                continue;
+            }
+            // Always run at least one network per tick so a tiny budget cannot starve everything
+            if (ranAny && System.nanoTime() >= deadline) {
+                carried.addAll(ready.subList(i, ready.size()));
+                return;
+            }
+            ranAny = true;
+            if (state.asleep) {
+                state.asleep = false;
+                sleeping--;
+            }
+            state.woken = false;
+            state.lastMoved = 0;
+            state.complete = runner.test(state.world, state.network);
+            schedule(state, currentTick + interval);
+        }
+    }
+
+    /**
+     * Wakes a network after something that may let it move items again, e.g. a container, topology or power change.
+     * A sleeping network runs on the next tick; an awake one is kept from falling asleep after its next run.
+     * @param network The network to wake.
+     */
+    public void wake(PipeNetwork network) {
+        State state = states.get(network);
+        if (state == null) return;
+        state.woken = true;
+        if (!state.asleep) return;
+        state.asleep = false;
+        sleeping--;
+        // Carried states run on the next tick anyway; queued ones move up to it, leaving their old entry to be skipped
+        if (state.queued) {
+            schedule(state, currentTick + 1);
+        }
+    }
+
+    /**
+     * Gets the number of networks currently asleep.
+     * @return The sleeping network count.
+     */
+    public int getSleepingCount() {
+        return sleeping;
+    }
+
+    /**
+     * Records items moved by a network, as a measure of its backlog.
+     * @param network The network that moved the items.
+     * @param count The number of items moved.
+     */
+    public void recordMoved(PipeNetwork network, int count) {
+        State state = states.get(network);
+        if (state != null) {
+            state.lastMoved += count;
+        }
+    }
+
+    /**
+     * Gets the current transfer interval, which grows while the server is under load.
+     * @return The interval in ticks.
+     */
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * Gets the number of due networks carried over because the budget ran out.
+     * @return The carried-over network count.
+     */
+    public int getBacklog() {
+        return carried.size();
+    }
+
+    // Queues a network to run on a tick, superseding any entry it already has
+    private void schedule(State state, long dueTick) {
+        state.dueTick = dueTick;
+        state.queued = true;
+        queue.add(new Entry(state, dueTick));
+    }
+
+    // Stretches the base interval in proportion to how far the tick time is above the load threshold
+    private int adaptInterval() {
+        int base = settings.getTransferInterval();
+        double mspt;
+        try {
+            mspt = Bukkit.getAverageTickTime();
+        } catch (UnsupportedOperationException e) {
+            // Not available on region-threaded servers
+            return base;
+        }
+        double threshold = settings.getLoadThresholdMspt();
+        if (mspt <= threshold) return base;
+        return (int) Math.min(settings.getMaxTransferInterval(), Math.ceil(base * mspt / threshold));
+    }
+}
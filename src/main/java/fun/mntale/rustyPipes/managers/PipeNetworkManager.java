@@ -4,36 +4,103 @@
  */
 package fun.mntale.rustyPipes.managers;
 
+import fun.mntale.rustyPipes.core.NodeKind;
+import fun.mntale.rustyPipes.core.PipeGraph;
+import fun.mntale.rustyPipes.core.TransferPlanner;
+import fun.mntale.rustyPipes.metrics.NetworkProfiler;
+import fun.mntale.rustyPipes.metrics.NetworkTickEvent;
+import fun.mntale.rustyPipes.metrics.PipeMetrics;
+import fun.mntale.rustyPipes.metrics.RebuildEvent;
+import fun.mntale.rustyPipes.metrics.TransferEvent;
+import fun.mntale.rustyPipes.models.Endpoint;
+import fun.mntale.rustyPipes.models.EndpointTable;
 import fun.mntale.rustyPipes.models.PipeNetwork;
-import fun.mntale.rustyPipes.models.PipeNode;
+import fun.mntale.rustyPipes.utils.ContainerSlotIndex;
 import fun.mntale.rustyPipes.utils.DebugLogger;
+import fun.mntale.rustyPipes.utils.NetworkStore;
 import fun.mntale.rustyPipes.utils.NMSUtils;
+import fun.mntale.rustyPipes.utils.PipeScheduler;
+import fun.mntale.rustyPipes.utils.PipeSettings;
+import fun.mntale.rustyPipes.utils.RebuildExecutor;
+import fun.mntale.rustyPipes.utils.RegionScanner;
+import fun.mntale.rustyPipes.utils.SectionSnapshot;
+import it.unimi.dsi.fastutil.longs.Long2ByteMap;
+import it.unimi.dsi.fastutil.longs.Long2ByteMaps;
+import it.unimi.dsi.fastutil.longs.Long2ByteOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Reference2IntLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntMaps;
 import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.entity.BaseContainerBlockEntity;
+import net.minecraft.world.level.block.state.BlockState;
 import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
 import org.bukkit.Material;
 import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
 import org.bukkit.plugin.Plugin;
-import org.bukkit.entity.ItemDisplay;
-import org.bukkit.inventory.ItemStack;
-import org.bukkit.Location;
-import org.bukkit.util.Transformation;
-import org.bukkit.util.Vector;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.joml.Vector3f;
-import org.joml.Quaternionf;
 
+import java.io.File;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * Manages all pipe networks using NMS for optimal performance.
  */
 public class PipeNetworkManager {
-    private final Map<String, List<PipeNetwork>> networks = new ConcurrentHashMap<>();
+    // Published per-world network lists; edited on the global region, read lock-free anywhere
+    private final NetworkRegistry registry = new NetworkRegistry();
+    private final Map<String, Long2ObjectMap<PipeNetwork>> nodeIndex = new ConcurrentHashMap<>();
+    // Block changes reported by events, applied once per tick; the latest change per position wins
+    private final Map<String, Long2ByteOpenHashMap> pendingChanges = new HashMap<>();
+    // Areas awaiting a rebuild, merged with each other as they are queued
+    private final Map<String, List<Area>> pendingAreas = new HashMap<>();
+    // Area rebuilds whose results have not been applied yet
+    private final Map<String, List<AreaJob>> inFlightAreas = new HashMap<>();
+    // Per world, position -> flush sequence of the last incremental change while rebuilds are running
+    private final Map<String, Long2LongOpenHashMap> changeLogs = new HashMap<>();
+    private long flushSequence;
+    // Orders the copies handed to the store, so an async save that runs late cannot overwrite a newer one
+    private long saveSequence;
+    // Per world, the newest copy handed to an async save that has not finished yet
+    private final Map<String, PendingSave> pendingSaves = new ConcurrentHashMap<>();
+
+    // Per network, its last encoding for the store; reused while the network's topology version matches
+    private final Map<PipeNetwork, NetworkStore.EncodedNetwork> encodedNetworks = new ConcurrentHashMap<>();
+
+    // A copy of a world's networks on its way to the store
+    private record PendingSave(long sequence, List<SavedNetwork> copy) {}
+
+    // A network on its way to the store: its cached encoding, or a copy still to be encoded
+    private record SavedNetwork(PipeNetwork network, NetworkStore.EncodedNetwork encoded, NetworkStore.StoredNetwork copy) {}
+    private final NetworkStore store;
+    // Worlds whose networks changed since they were last saved
+    private final Set<String> dirtyWorlds = new HashSet<>();
+    // Per world, chunks holding nodes loaded from the store that have not been checked against the world yet
+    private final Map<String, LongOpenHashSet> unverifiedChunks = new HashMap<>();
+    private static final byte REMOVED = -1;
     private static final Set<Material> PIPE_MATERIALS = Set.of(
         Material.COPPER_GRATE,
         Material.COPPER_BLOCK,
@@ -68,101 +135,580 @@ public class PipeNetworkManager {
         Material.OXIDIZED_CHISELED_COPPER, Material.WAXED_OXIDIZED_CHISELED_COPPER
     );
 
+    // Palette filter for snapshot collection, evaluated off the main thread
+    private static final Predicate<BlockState> NETWORK_STATE = state -> isNetworkBlock(state.getBukkitMaterial());
+
     private final Plugin plugin = org.bukkit.Bukkit.getPluginManager().getPlugin("RustyPipes");
+    private final PipeScheduler scheduler = new PipeScheduler(plugin);
+    private final VisualManager visuals;
+    // Networks whose endpoint table is being resolved on the regions owning its endpoints
+    private final Set<PipeNetwork> resolving = new HashSet<>();
+    private final NetworkTickScheduler tickScheduler;
+    // Workers classifying area snapshots
+    private final RebuildExecutor rebuildExecutor;
+    // Per world, container position -> networks with an endpoint using it, from the installed endpoint tables
+    private final Map<String, Long2ObjectMap<List<PipeNetwork>>> containerIndex = new HashMap<>();
+    // Per world, unloaded chunk -> networks whose installed table left out endpoints in it, and the reverse
+    private final Map<String, Long2ObjectMap<List<PipeNetwork>>> awaitedChunks = new HashMap<>();
+    private final Map<PipeNetwork, long[]> awaitingNetworks = new HashMap<>();
+    private final Map<PipeNetwork, long[]> indexedContainers = new HashMap<>();
+    // Per world, container position -> slot index; each index is only used by the region owning its container
+    private final Map<String, Long2ObjectMap<ContainerSlotIndex>> slotIndexes = new ConcurrentHashMap<>();
+    // Horizontal reach of getAdjacentContainer: composite faces such as NORTH_NORTH_EAST are two blocks out
+    private static final int CONTAINER_REACH = 2;
+    // No packed ChunkPos inside the world border has this value
+    private static final long ALL_LOADED = Long.MIN_VALUE;
+    // Slot indexes are rebuilt at least this often, in case a container changed without any event
+    private static final long SLOT_INDEX_MAX_AGE_NANOS = TimeUnit.SECONDS.toNanos(5);
+    // Published registry generation the tick scheduler was last synced with
+    private long syncedGeneration = -1;
+    private final PipeSettings settings;
+    private final PipeMetrics metrics = new PipeMetrics();
+    // Server ticks seen by tick(), for sampling the metric gauges once per second
+    private long ticks;
+    // The running profile session and who gets its result, or null
+    private NetworkProfiler profiler;
+    private Consumer<List<NetworkProfiler.Sample>> profileDone;
+
+    /**
+     * Constructs a PipeNetworkManager.
+     * @param settings The plugin settings.
+     */
+    public PipeNetworkManager(PipeSettings settings) {
+        this.settings = settings;
+        this.visuals = new VisualManager(scheduler, settings);
+        this.tickScheduler = new NetworkTickScheduler(settings, this::tickNetwork);
+        this.rebuildExecutor = new RebuildExecutor(settings.getRebuildThreads(), settings.isRebuildVirtualThreads());
+        this.store = new NetworkStore(new File(plugin.getDataFolder(), "networks"));
+    }
+
+    /**
+     * Gets the visual manager that renders items moving through pipes.
+     * @return The VisualManager.
+     */
+    public VisualManager getVisualManager() {
+        return visuals;
+    }
+
+    /**
+     * Gets the workers running the off-thread part of area rebuilds.
+     * @return The RebuildExecutor.
+     */
+    public RebuildExecutor getRebuildExecutor() {
+        return rebuildExecutor;
+    }
+
+    /**
+     * Gets the runtime metrics of the pipe engine.
+     * @return The PipeMetrics.
+     */
+    public PipeMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Starts profiling what each network costs the global region, for a number of server ticks.
+     * Must be called on the global region thread.
+     * @param durationTicks The length of the session in server ticks.
+     * @param done Receives the samples, most expensive network first, on the global region thread.
+     * @return False if a session is already running.
+     */
+    public boolean startProfile(long durationTicks, Consumer<List<NetworkProfiler.Sample>> done) {
+        if (profiler != null) return false;
+        profiler = new NetworkProfiler(durationTicks);
+        profileDone = done;
+        return true;
+    }
 
     /**
-     * Scans the world for all pipe networks. (Not implemented)
+     * Gets the scheduler that places work on the threads owning the data it touches.
+     * @return The PipeScheduler.
+     */
+    public PipeScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Rebuilds every pipe network of a world from its region files, logging progress to the console.
      * @param world The world to scan.
+     * @return A future completed on the global region thread with the number of nodes found.
      */
-    public void scanWorld(World world) {
-        // Not implemented for now
+    public CompletableFuture<Integer> scanWorld(World world) {
+        return scanWorld(world, DebugLogger::log);
     }
 
     /**
-     * Updates pipe networks when a block is placed or broken.
-     * Now runs network scanning async for performance.
-     * @param changedBlock The block that was changed.
+     * Rebuilds every pipe network of a world from its region files without loading any chunk.
+     * Region files are read on a worker pool; the result replaces the world's networks on the global region thread,
+     * after which loaded chunks are checked against the live world, since their latest changes may not be on disk yet.
+     * @param world The world to scan.
+     * @param reporter Receives MiniMessage progress lines on the global region thread.
+     * @return A future completed on the global region thread with the number of nodes found.
+     */
+    public CompletableFuture<Integer> scanWorld(World world, Consumer<String> reporter) {
+        String worldName = world.getName();
+        CompletableFuture<Integer> done = new CompletableFuture<>();
+        File regionFolder = RegionScanner.getRegionFolder(world);
+        RegionScanner scanner = new RegionScanner(PipeNetworkManager::getNodeKind, settings.getScanThreads());
+        AtomicInteger lastStep = new AtomicInteger(-1);
+        // A scan or clear that finishes first makes this result obsolete
+        long startGeneration = registry.getGeneration();
+        reporter.accept("<#ffb300>Scanning region files</#ffb300> of <#00eaff>" + worldName + "</#00eaff>");
+        scheduler.runAsync(() -> {
+            List<NetworkStore.StoredNetwork> found = scanner.scan(regionFolder, (scanned, total, nodes) -> {
+                // Report every 10%
+                int step = scanned * 10 / total;
+                if (lastStep.getAndAccumulate(step, Math::max) < step) {
+                    scheduler.runGlobal(() -> reporter.accept("<gray>Scan of " + worldName + ":</gray> <#00ff99>" + scanned + "/" + total + "</#00ff99> <gray>regions,</gray> <#00ff99>" + nodes + "</#00ff99> <gray>nodes</gray>"));
+                }
+            });
+            scheduler.runGlobal(() -> {
+                if (registry.isReplacedSince(worldName, startGeneration)) {
+                    reporter.accept("<#ff6b6b>Scan dropped</#ff6b6b> for <#00eaff>" + worldName + "</#00eaff> <gray>| the world's networks were replaced while it ran</gray>");
+                    done.complete(0);
+                    return;
+                }
+                // Replace the world wholesale; later changes are rebased by checking the loaded chunks below
+                registry.clear(worldName);
+                nodeIndex.remove(worldName);
+                unverifiedChunks.remove(worldName);
+                int restored = installNetworks(world, found);
+                registry.publish();
+                // Loaded chunks may hold pipes that were never saved to disk; each is checked on its own region
+                for (Chunk chunk : world.getLoadedChunks()) {
+                    scheduler.runAt(world, chunk.getX() << 4, chunk.getZ() << 4, () -> onChunkLoad(chunk));
+                }
+                dirtyWorlds.add(worldName);
+                reporter.accept("<#ffb300>Scan finished</#ffb300> for <#00eaff>" + worldName + "</#00eaff> <gray>|</gray> <#00ff99>Networks:</#00ff99> " + found.size() + " <#00ff99>Nodes:</#00ff99> " + restored);
+                done.complete(restored);
+            });
+        });
+        return done;
+    }
+
+    /**
+     * Checks if networks were ever saved, i.e. whether this is the first start on this server.
+     * @return True if the network store holds no world.
+     */
+    public boolean isStoreEmpty() {
+        return store.isEmpty();
+    }
+
+    /**
+     * Queues a re-synchronisation of the networks around a block with the world.
+     * Used when a whole area may have changed (for example a chunk load); single placements
+     * and removals go through {@link #addNode(Block)} and {@link #removeNode(Block)} instead.
+     * Overlapping areas queued in the same tick are merged into one rebuild.
+     * @param changedBlock The block at the centre of the area to reconcile.
      */
     public void updateNetworks(Block changedBlock) {
-        String worldName = changedBlock.getWorld().getName();
-        BlockPos changedPos = NMSUtils.getBlockPos(changedBlock);
+        metrics.recordRebuildRequest();
         int radius = 24;
-        World world = changedBlock.getWorld();
-        // 1. Collect block data (main thread)
-        Map<BlockPos, Material> blockMap = new HashMap<>();
-        for (int dx = -radius; dx <= radius; dx++) {
-            for (int dy = -radius; dy <= radius; dy++) {
-                for (int dz = -radius; dz <= radius; dz++) {
-                    BlockPos pos = changedPos.offset(dx, dy, dz);
-                    Block block = world.getBlockAt(pos.getX(), pos.getY(), pos.getZ());
-                    blockMap.put(pos, block.getType());
-                }
+        queueAreaGlobal(changedBlock.getWorld().getName(), new Area(changedBlock.getX() - radius, changedBlock.getY() - radius, changedBlock.getZ() - radius,
+            changedBlock.getX() + radius, changedBlock.getY() + radius, changedBlock.getZ() + radius));
+    }
+
+    // Queues an area rebuild from any thread; pending state belongs to the global region
+    private void queueAreaGlobal(String worldName, Area area) {
+        scheduler.runGlobal(() -> queueArea(worldName, area));
+    }
+
+    // Queues an area rebuild for the next flush, merging it with every pending area it touches
+    private void queueArea(String worldName, Area area) {
+        List<Area> areas = pendingAreas.computeIfAbsent(worldName, w -> new ArrayList<>());
+        // Fold every pending area that touches the new one into it
+        Iterator<Area> it = areas.iterator();
+        while (it.hasNext()) {
+            Area other = it.next();
+            if (other.intersects(area)) {
+                area = area.union(other);
+                it.remove();
+                it = areas.iterator();
             }
         }
-        // 2. Run network scan async
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            Set<BlockPos> visited = new HashSet<>();
-            List<PipeNetwork> newNetworks = new ArrayList<>();
-            // Remove any networks that intersect the changed block (sync, later)
-            // Scan for all unvisited pipe/endpoint blocks in the area
-            for (BlockPos pos : blockMap.keySet()) {
-                if (visited.contains(pos)) continue;
-                Material mat = blockMap.get(pos);
-                if (NMSUtils.isPipe(mat) || isEndpointBlock(mat)) {
-                    PipeNetwork network = scanNetworkAsync(pos, blockMap, visited, worldName);
-                    if (network != null && network.getTotalComponents() > 0) {
-                        newNetworks.add(network);
-                    }
-                }
+        areas.add(area);
+    }
+
+    /**
+     * Queues rebuilds for the network blocks of a freshly loaded chunk.
+     * Section palettes are checked first, so chunks without pipes or endpoints cost one check per section.
+     * Chunks holding nodes loaded from the store are rebuilt once in full, so blocks removed while the
+     * plugin was not running are dropped.
+     * @param chunk The loaded chunk.
+     */
+    public void onChunkLoad(Chunk chunk) {
+        World world = chunk.getWorld();
+        int chunkX = chunk.getX();
+        int chunkZ = chunk.getZ();
+        // The palettes are read on the thread owning the chunk; the bookkeeping happens on the global region
+        List<BlockPos> hits = SectionSnapshot.findPerSection(world, chunkX, chunkZ, NETWORK_STATE);
+        scheduler.runGlobal(() -> {
+            verifyStoredChunk(world, chunkX, chunkZ);
+            onAwaitedChunkLoaded(world.getName(), chunkX, chunkZ);
+            for (BlockPos hit : hits) {
+                updateNetworks(world.getBlockAt(hit.getX(), hit.getY(), hit.getZ()));
             }
-            // 3. Apply results on main thread
-            Bukkit.getScheduler().runTask(plugin, () -> {
-                List<PipeNetwork> oldNetworks = getNetworks(worldName);
-                oldNetworks.removeIf(network -> network.containsPosition(changedPos));
-                oldNetworks.clear();
-                oldNetworks.addAll(newNetworks);
-                for (PipeNetwork network : newNetworks) {
-                    DebugLogger.log("<#ffb300>Network rebuilt (async)</#ffb300> at <#00eaff>" + worldName + "</#00eaff> <gray>|</gray> <#00ff99>Pipes:</#00ff99> " + network.getPipes().size());
-                }
-            });
         });
     }
 
     /**
-     * Async network scan using only local block data.
+     * Queues a pipe or endpoint block for addition to the networks of its world.
+     * At the next flush it joins the adjacent network, or merges all adjacent networks into the largest one.
+     * @param block The block that was placed.
+     */
+    public void addNode(Block block) {
+        NodeKind kind = getNodeKind(block.getType());
+        if (kind == null) return;
+        queueChange(block, (byte) kind.ordinal());
+    }
+
+    /**
+     * Queues a pipe or endpoint block for removal from the networks of its world.
+     * At the next flush the owning network is split only if its remaining nodes are no longer connected.
+     * @param block The block that was removed.
      */
-    private PipeNetwork scanNetworkAsync(BlockPos start, Map<BlockPos, Material> blockMap, Set<BlockPos> visited, String worldName) {
-        Queue<BlockPos> queue = new LinkedList<>();
-        PipeNetwork network = new PipeNetwork(worldName);
-        queue.add(start);
-        while (!queue.isEmpty()) {
-            BlockPos pos = queue.poll();
-            if (visited.contains(pos)) continue;
-            visited.add(pos);
-            Material mat = blockMap.get(pos);
-            if (mat == null) continue;
-            if (NMSUtils.isPipe(mat) || isEndpointBlock(mat)) {
-                network.addPipe(new fun.mntale.rustyPipes.models.PipeNode(pos, worldName));
-            }
-            for (BlockPos adj : NMSUtils.getAdjacentPositions(pos)) {
-                if (!visited.contains(adj) && blockMap.containsKey(adj)) {
-                    Material adjMat = blockMap.get(adj);
-                    if (NMSUtils.isPipe(adjMat) || isEndpointBlock(adjMat)) {
-                        queue.add(adj);
+    public void removeNode(Block block) {
+        queueChange(block, REMOVED);
+    }
+
+    // Records the latest change for a position; earlier changes to it in the same tick are superseded
+    private void queueChange(Block block, byte change) {
+        String worldName = block.getWorld().getName();
+        long pos = BlockPos.asLong(block.getX(), block.getY(), block.getZ());
+        scheduler.runGlobal(() -> pendingChanges.computeIfAbsent(worldName, w -> newChangeMap()).put(pos, change));
+    }
+
+    /**
+     * Applies every block change and area rebuild queued since the last flush.
+     * Called once per tick on the global region thread (the main thread on Paper). Removals are applied as one batch per world, so each
+     * affected network gets a single connectivity check however many of its nodes were removed.
+     */
+    public void flushPendingChanges() {
+        if (pendingChanges.isEmpty() && pendingAreas.isEmpty()) return;
+        flushSequence++;
+        for (Map.Entry<String, Long2ByteOpenHashMap> entry : pendingChanges.entrySet()) {
+            String worldName = entry.getKey();
+            Long2ByteOpenHashMap changes = entry.getValue();
+            Long2ObjectMap<PipeNetwork> index = getNodeIndex(worldName);
+            Long2LongOpenHashMap log = inFlightAreas.containsKey(worldName) ? getChangeLog(worldName) : null;
+            LongArrayList removals = new LongArrayList();
+            Long2ObjectOpenHashMap<NodeKind> additions = new Long2ObjectOpenHashMap<>();
+            for (Long2ByteMap.Entry change : Long2ByteMaps.fastIterable(changes)) {
+                long pos = change.getLongKey();
+                PipeNetwork current = index.get(pos);
+                if (log != null) {
+                    log.put(pos, flushSequence);
+                }
+                if (change.getByteValue() == REMOVED) {
+                    if (current != null) removals.add(pos);
+                    continue;
+                }
+                NodeKind kind = NodeKind.values()[change.getByteValue()];
+                if (current != null && current.getKind(pos) == kind) continue;
+                if (current != null) removals.add(pos);
+                additions.put(pos, kind);
+            }
+            removeNodes(worldName, removals);
+            for (Long2ObjectMap.Entry<NodeKind> addition : Long2ObjectMaps.fastIterable(additions)) {
+                addNode(worldName, addition.getLongKey(), addition.getValue());
+            }
+        }
+        pendingChanges.clear();
+        for (Map.Entry<String, List<Area>> entry : pendingAreas.entrySet()) {
+            World world = Bukkit.getWorld(entry.getKey());
+            if (world == null) continue;
+            for (Area area : entry.getValue()) {
+                startReconcile(world, area);
+            }
+        }
+        pendingAreas.clear();
+        registry.publish();
+    }
+
+    // Snapshots an area and reconciles it on the rebuild workers. Rebuilds whose whole area is covered by this one are
+    // cancelled: dropped from the worker queue if they have not started, stopped between sections if they have
+    private void startReconcile(World world, Area area) {
+        String worldName = world.getName();
+        long captureSequence = flushSequence;
+        AreaJob job = new AreaJob(area, System.nanoTime(), registry.getGeneration());
+        job.event.begin();
+        List<AreaJob> running = inFlightAreas.computeIfAbsent(worldName, w -> new ArrayList<>());
+        Iterator<AreaJob> it = running.iterator();
+        while (it.hasNext()) {
+            AreaJob older = it.next();
+            if (!area.contains(older.area)) continue;
+            older.superseded = true;
+            Future<?> task = older.task;
+            if (task != null) {
+                rebuildExecutor.cancel(task);
+            }
+            // This rebuild keeps the change log alive, so the older one can be forgotten now
+            it.remove();
+            metrics.recordRebuildCancelled();
+            commitRebuild(worldName, older, 0, 0);
+        }
+        running.add(job);
+        // 1. Snapshot the section palettes on the regions owning them; sections without network blocks are not copied
+        captureArea(world, area, job, snapshot -> {
+            // 2. Classify the copied sections on a rebuild worker
+            job.task = rebuildExecutor.submit(() -> {
+                Long2ObjectMap<BlockState> found = snapshot.collect(NETWORK_STATE, () -> job.superseded);
+                if (found == null) return;
+                // 3. Apply the difference on the global region, so only positions that actually changed touch topology
+                scheduler.runGlobal(() -> {
+                    // Already forgotten and recorded when it was cancelled
+                    if (job.superseded) return;
+                    finishReconcile(worldName, job);
+                    // Changes since the capture are rebased through the change log, but not a wholesale replacement
+                    if (registry.isReplacedSince(worldName, job.generation)) {
+                        job.superseded = true;
+                        commitRebuild(worldName, job, 0, 0);
+                        return;
+                    }
+                    long applyStart = System.nanoTime();
+                    int changes = reconcileArea(worldName, snapshot, found, captureSequence);
+                    registry.publish();
+                    metrics.recordRebuild(System.nanoTime() - job.startNanos);
+                    if (profiler != null) {
+                        profileRebuild(worldName, found, System.nanoTime() - applyStart);
                     }
+                    commitRebuild(worldName, job, found.size(), changes);
+                    if (changes > 0) {
+                        DebugLogger.log("<#ffb300>Networks reconciled</#ffb300> at <#00eaff>" + worldName + "</#00eaff> <gray>|</gray> <#00ff99>Changes:</#00ff99> " + changes);
+                    }
+                });
+            });
+        });
+    }
+
+    // Captures the loaded chunks of an area on the regions owning them and hands the joined snapshot to 'done' on the
+    // thread that captured the last part. Every task takes all uncaptured chunks its region owns, so an area inside
+    // one region (always, on Paper) is captured in a single pass. Nothing is handed over once the job is superseded
+    private void captureArea(World world, Area area, AreaJob job, Consumer<SectionSnapshot> done) {
+        BlockPos min = new BlockPos(area.minX, area.minY, area.minZ);
+        BlockPos max = new BlockPos(area.maxX, area.maxY, area.maxZ);
+        LongArrayList chunks = new LongArrayList();
+        for (int cx = SectionPos.blockToSectionCoord(area.minX); cx <= SectionPos.blockToSectionCoord(area.maxX); cx++) {
+            for (int cz = SectionPos.blockToSectionCoord(area.minZ); cz <= SectionPos.blockToSectionCoord(area.maxZ); cz++) {
+                // Unloaded chunks are left uncovered, so no task waits for them
+                if (world.isChunkLoaded(cx, cz)) chunks.add(ChunkPos.asLong(cx, cz));
+            }
+        }
+        if (chunks.isEmpty()) {
+            done.accept(SectionSnapshot.join(min, max, List.of()));
+            return;
+        }
+        AtomicIntegerArray claimed = new AtomicIntegerArray(chunks.size());
+        AtomicInteger remaining = new AtomicInteger(chunks.size());
+        Queue<SectionSnapshot> parts = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < chunks.size(); i++) {
+            long chunk = chunks.getLong(i);
+            int index = i;
+            scheduler.runAt(world, ChunkPos.getX(chunk) << 4, ChunkPos.getZ(chunk) << 4, () -> {
+                if (claimed.get(index) != 0) return;
+                LongArrayList owned = new LongArrayList();
+                for (int j = 0; j < chunks.size(); j++) {
+                    long other = chunks.getLong(j);
+                    if (scheduler.owns(world, ChunkPos.getX(other) << 4, ChunkPos.getZ(other) << 4) && claimed.compareAndSet(j, 0, 1)) {
+                        owned.add(other);
+                    }
+                }
+                if (owned.isEmpty()) return;
+                if (!job.superseded) {
+                    parts.add(SectionSnapshot.capture(world, min, max, owned, NETWORK_STATE));
+                }
+                if (remaining.addAndGet(-owned.size()) == 0 && !job.superseded) {
+                    done.accept(SectionSnapshot.join(min, max, parts));
                 }
+            });
+        }
+    }
+
+    // Records a finished or dropped rebuild to the Flight Recorder, if enabled
+    private static void commitRebuild(String worldName, AreaJob job, int nodes, int changes) {
+        RebuildEvent event = job.event;
+        event.end();
+        if (!event.shouldCommit()) return;
+        Area area = job.area;
+        event.world = worldName;
+        event.minX = area.minX;
+        event.minY = area.minY;
+        event.minZ = area.minZ;
+        event.volume = (long) (area.maxX - area.minX + 1) * (area.maxY - area.minY + 1) * (area.maxZ - area.minZ + 1);
+        event.nodes = nodes;
+        event.changes = changes;
+        event.superseded = job.superseded;
+        event.commit();
+    }
+
+    // Splits the global region time of an applied rebuild among the networks it left nodes in, by node count,
+    // so the shares add up to the rebuild's actual cost
+    private void profileRebuild(String worldName, Long2ObjectMap<BlockState> found, long nanos) {
+        Long2ObjectMap<PipeNetwork> index = getNodeIndex(worldName);
+        Reference2IntLinkedOpenHashMap<PipeNetwork> nodes = new Reference2IntLinkedOpenHashMap<>();
+        int remainingNodes = 0;
+        LongIterator it = found.keySet().iterator();
+        while (it.hasNext()) {
+            PipeNetwork network = index.get(it.nextLong());
+            if (network != null) {
+                nodes.addTo(network, 1);
+                remainingNodes++;
             }
         }
-        return network;
+        long remaining = nanos;
+        for (Reference2IntMap.Entry<PipeNetwork> entry : Reference2IntMaps.fastIterable(nodes)) {
+            // The last network gets whatever rounding left over
+            long share = remaining * entry.getIntValue() / remainingNodes;
+            profiler.recordRebuild(entry.getKey(), share);
+            remaining -= share;
+            remainingNodes -= entry.getIntValue();
+        }
+    }
+
+    // Forgets a finished rebuild; once none are running the change log is no longer needed
+    private void finishReconcile(String worldName, AreaJob job) {
+        List<AreaJob> running = inFlightAreas.get(worldName);
+        if (running == null) return;
+        running.remove(job);
+        if (running.isEmpty()) {
+            inFlightAreas.remove(worldName);
+            changeLogs.remove(worldName);
+        }
+    }
+
+    // Union step: attach the node to its neighbours, folding smaller networks into the largest one
+    private void addNode(String worldName, long pos, NodeKind kind) {
+        PipeGraph.Attachment<PipeNetwork> attachment =
+            PipeGraph.attach(getNodeIndex(worldName), pos, kind, () -> new PipeNetwork(worldName));
+        if (attachment == null) return;
+        if (attachment.created()) {
+            registry.add(worldName, attachment.target());
+        }
+        for (PipeNetwork absorbed : attachment.absorbed()) {
+            registry.remove(worldName, absorbed);
+        }
+        registry.nodesChanged(worldName);
+        dirtyWorlds.add(worldName);
+        tickScheduler.wake(attachment.target());
+    }
+
+    // Removal step: drop a batch of nodes, then check each affected network for a split exactly once
+    private void removeNodes(String worldName, LongArrayList positions) {
+        if (positions.isEmpty()) return;
+        registry.nodesChanged(worldName);
+        dirtyWorlds.add(worldName);
+        Long2ObjectMap<PipeNetwork> index = getNodeIndex(worldName);
+        for (Map.Entry<PipeNetwork, LongList> entry : PipeGraph.detach(index, positions).entrySet()) {
+            PipeNetwork network = entry.getKey();
+            tickScheduler.wake(network);
+            if (network.getTotalComponents() == 0) {
+                registry.remove(worldName, network);
+                continue;
+            }
+            for (PipeNetwork detached : network.splitDisconnected(entry.getValue(), () -> new PipeNetwork(worldName))) {
+                LongIterator it = detached.getPositions().iterator();
+                while (it.hasNext()) {
+                    index.put(it.nextLong(), detached);
+                }
+                registry.add(worldName, detached);
+            }
+        }
+    }
+
+    // Brings the index inside a snapshot in line with the network blocks found there; returns the number of changes.
+    // Positions changed incrementally after the snapshot was captured are newer than the snapshot and are skipped.
+    private int reconcileArea(String worldName, SectionSnapshot snapshot, Long2ObjectMap<BlockState> found, long captureSequence) {
+        Long2ObjectMap<PipeNetwork> index = getNodeIndex(worldName);
+        Long2LongOpenHashMap log = changeLogs.get(worldName);
+        LongArrayList stale = new LongArrayList();
+        LongIterator indexed = index.keySet().iterator();
+        while (indexed.hasNext()) {
+            long pos = indexed.nextLong();
+            if (snapshot.covers(pos) && !found.containsKey(pos) && !changedSince(log, pos, captureSequence)) {
+                stale.add(pos);
+            }
+        }
+        removeNodes(worldName, stale);
+        int changes = stale.size();
+        for (Long2ObjectMap.Entry<BlockState> entry : Long2ObjectMaps.fastIterable(found)) {
+            long pos = entry.getLongKey();
+            if (changedSince(log, pos, captureSequence)) continue;
+            NodeKind kind = getNodeKind(entry.getValue().getBukkitMaterial());
+            PipeNetwork current = index.get(pos);
+            if (current != null && current.getKind(pos) == kind) continue;
+            if (current != null) {
+                removeNodes(worldName, LongArrayList.of(pos));
+            }
+            addNode(worldName, pos, kind);
+            changes++;
+        }
+        return changes;
+    }
+
+    // True if an incremental change to the position was applied after the given flush
+    private static boolean changedSince(Long2LongOpenHashMap log, long pos, long sequence) {
+        return log != null && log.get(pos) > sequence;
+    }
+
+    // Position -> flush sequence of its last incremental change, kept while rebuilds of the world are running
+    private Long2LongOpenHashMap getChangeLog(String worldName) {
+        return changeLogs.computeIfAbsent(worldName, w -> new Long2LongOpenHashMap());
+    }
+
+    // Pending change map whose missing-key value cannot be confused with a real change
+    private static Long2ByteOpenHashMap newChangeMap() {
+        Long2ByteOpenHashMap map = new Long2ByteOpenHashMap();
+        map.defaultReturnValue(Byte.MIN_VALUE);
+        return map;
+    }
+
+    // An inclusive block box
+    private record Area(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        boolean intersects(Area o) {
+            return minX <= o.maxX && maxX >= o.minX && minY <= o.maxY && maxY >= o.minY && minZ <= o.maxZ && maxZ >= o.minZ;
+        }
+
+        boolean contains(Area o) {
+            return minX <= o.minX && maxX >= o.maxX && minY <= o.minY && maxY >= o.maxY && minZ <= o.minZ && maxZ >= o.maxZ;
+        }
+
+        Area union(Area o) {
+            return new Area(Math.min(minX, o.minX), Math.min(minY, o.minY), Math.min(minZ, o.minZ),
+                Math.max(maxX, o.maxX), Math.max(maxY, o.maxY), Math.max(maxZ, o.maxZ));
+        }
+    }
+
+    // A running area rebuild; superseded once a newer rebuild covering its whole area starts
+    private static final class AreaJob {
+        final Area area;
+        final long startNanos;
+        // Registry generation at capture time
+        final long generation;
+        // Spans snapshot, classification and apply across their threads
+        final RebuildEvent event = new RebuildEvent();
+        volatile boolean superseded;
+        // The classification on a rebuild worker, once submitted
+        volatile Future<?> task;
+
+        AreaJob(Area area, long startNanos, long generation) {
+            this.area = area;
+            this.startNanos = startNanos;
+            this.generation = generation;
+        }
+    }
+
+    // Packed position -> owning network index for a world
+    private Long2ObjectMap<PipeNetwork> getNodeIndex(String worldName) {
+        return nodeIndex.computeIfAbsent(worldName, w -> new Long2ObjectOpenHashMap<>());
     }
 
     /**
-     * Gets the list of pipe networks for a world.
+     * Gets the published pipe networks of a world. Safe from any thread; the list never changes once returned.
      * @param worldName The world name.
-     * @return List of PipeNetwork objects.
+     * @return Immutable list of PipeNetwork objects.
      */
     public List<PipeNetwork> getNetworks(String worldName) {
-        return networks.computeIfAbsent(worldName, w -> new ArrayList<>());
+        return registry.get(worldName).networks();
     }
 
     /**
@@ -184,115 +730,406 @@ public class PipeNetworkManager {
     }
 
     /**
-     * Called every tick to move items through all pipe networks using NMS.
-     * Runs synchronously on the main thread.
+     * Called every server tick to move items through the pipe networks that are due.
+     * Networks run once per transfer interval in staggered phases, within a per-tick time budget
+     * (see {@link NetworkTickScheduler}).
+     * Runs on the global region thread (the main thread on Paper), which owns the network graph. Container
+     * access is handed to the region owning each output container; on Paper that is the same thread and runs inline.
+     * Work per network scales with its endpoint count; pipe segments are only visited when the cached
+     * endpoint table has to be rebuilt.
      */
     public void tick() {
-        for (Map.Entry<String, List<PipeNetwork>> entry : networks.entrySet()) {
-            String worldName = entry.getKey();
-            World world = Bukkit.getWorld(worldName);
-            if (world == null) continue;
-            
-            Level nmsWorld = NMSUtils.getNMSWorld(world);
-            
-            // Iterate over a copy to avoid ConcurrentModificationException
-            for (PipeNetwork network : new ArrayList<>(entry.getValue())) {
-                // No more getInputEndpoints()/getOutputEndpoints() checks
-                // Scan endpoints and classify
-                List<Endpoint> outputs = new ArrayList<>();
-                List<Endpoint> inputs = new ArrayList<>();
-                for (PipeNode node : network.getPipes()) {
-                    BlockPos pos = node.getBlockPos();
-                    Block block = world.getBlockAt(pos.getX(), pos.getY(), pos.getZ());
-                    Material mat = block.getType();
-                    int power = getRedstonePower(world, pos);
-                    BlockPos containerPos = getAdjacentContainer(world, pos);
-                    if (containerPos == null) continue;
-                    if (BOTH_ENDPOINTS.contains(mat)) {
-                        if (power > 0) {
-                            inputs.add(new Endpoint(pos, containerPos, power));
-                        } else {
-                            outputs.add(new Endpoint(pos, containerPos, power));
-                        }
-                    } else if (OUTPUT_ENDPOINTS.contains(mat)) {
-                        outputs.add(new Endpoint(pos, containerPos, power));
-                    } else if (INPUT_ENDPOINTS.contains(mat)) {
-                        inputs.add(new Endpoint(pos, containerPos, power));
-                    }
+        long start = System.nanoTime();
+        if (registry.getPublishedGeneration() != syncedGeneration) {
+            syncedGeneration = registry.getPublishedGeneration();
+            Map<World, List<PipeNetwork>> current = new HashMap<>();
+            Set<PipeNetwork> live = PipeMetrics.newNetworkSet();
+            for (Map.Entry<String, NetworkRegistry.Snapshot> entry : registry.getAll().entrySet()) {
+                List<PipeNetwork> published = entry.getValue().networks();
+                live.addAll(published);
+                World world = Bukkit.getWorld(entry.getKey());
+                if (world != null) {
+                    current.put(world, published);
                 }
-                // Sort inputs: highest power first, then nearest to output
-                inputs.sort((a, b) -> Integer.compare(b.power, a.power));
-
-                // Sort outputs: lowest power first
-                outputs.sort(Comparator.comparingInt(a -> a.power));
-                // For each output, move one item to best input
-                for (Endpoint output : outputs) {
-                    BaseContainerBlockEntity source = NMSUtils.getContainerBlockEntity(nmsWorld, output.containerPos);
-                    if (source == null) continue;
-                    // Find best input (highest power, then nearest, then prefer left)
-                    Endpoint bestInput = null;
-                    int bestDist = Integer.MAX_VALUE;
-                    int bestLeft = Integer.MIN_VALUE;
-                    BlockPos prevPipe = null;
-                    // Find a pipe adjacent to the output (other than the container)
-                    for (BlockFace face : BlockFace.values()) {
-                        if (face == BlockFace.SELF) continue;
-                        BlockPos adj = new BlockPos(output.pos.getX() + face.getModX(), output.pos.getY() + face.getModY(), output.pos.getZ() + face.getModZ());
-                        if (!adj.equals(output.containerPos) && network.hasPipeAt(adj)) {
-                            prevPipe = adj;
-                            break;
-                        }
-                    }
-                    for (Endpoint input : inputs) {
-                        int dist = manhattan(output.pos, input.pos);
-                        int left = 0;
-                        if (prevPipe != null) {
-                            left = leftness(output.pos, prevPipe, input.pos);
-                        }
-                        if (bestInput == null
-                                || input.power > bestInput.power
-                                || (input.power == bestInput.power && dist < bestDist)
-                                || (input.power == bestInput.power && dist == bestDist && left > bestLeft)) {
-                            bestInput = input;
-                            bestDist = dist;
-                            bestLeft = left;
-                        }
-                    }
-                    final Endpoint finalOutput = output;
-                    final Endpoint finalBestInput = bestInput;
-                    if (finalBestInput == null) continue;
-                    BaseContainerBlockEntity dest = NMSUtils.getContainerBlockEntity(nmsWorld, finalBestInput.containerPos);
-                    if (dest == null) continue;
-                    int moved = 0;
-                    for (int slot = 0; slot < source.getContainerSize(); slot++) {
-                        net.minecraft.world.item.ItemStack item = source.getItem(slot);
-                        if (item.isEmpty()) continue;
-                        int toMove = Math.min(16 - moved, item.getCount());
-                        if (toMove <= 0) break;
-                        if (NMSUtils.transferItem(source, dest, slot, toMove)) {
-                            for (int i = 0; i < toMove; i++) {
-                                Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-                                    List<BlockPos> path = findPipePath(network, finalOutput.pos, finalBestInput.pos);
-                                    Bukkit.getScheduler().runTask(plugin, () -> {
-                                        spawnPipeVisual(world, path, NMSUtils.toBukkitItemStack(item).asOne());
-                                    });
-                                });
-                            }
-                            moved += toMove;
-                            if (moved >= 16) break;
-                        }
-                    }
+            }
+            tickScheduler.sync(current);
+            metrics.retainNetworks(live);
+            // Networks emptied by merges and removals no longer use their containers
+            for (PipeNetwork network : new ArrayList<>(indexedContainers.keySet())) {
+                if (network.getTotalComponents() == 0) {
+                    unindexContainers(network.getWorldName(), network);
+                    stopAwaitingChunks(network.getWorldName(), network);
                 }
             }
         }
+        tickScheduler.tick();
+        metrics.recordTick(System.nanoTime() - start);
+        if (++ticks % 20 == 0) {
+            sampleMetrics();
+        }
+        if (profiler != null && profiler.tick()) {
+            List<NetworkProfiler.Sample> samples = profiler.getSamples();
+            Consumer<List<NetworkProfiler.Sample>> done = profileDone;
+            profiler = null;
+            profileDone = null;
+            done.accept(samples);
+        }
+    }
+
+    // Samples the gauges that are read from global region state
+    private void sampleMetrics() {
+        int queued = 0;
+        for (List<Area> areas : pendingAreas.values()) queued += areas.size();
+        for (List<AreaJob> jobs : inFlightAreas.values()) queued += jobs.size();
+        metrics.sample(queued, visuals.getActiveCount(), getTotalNetworks(), tickScheduler.getSleepingCount(),
+            tickScheduler.getBacklog(), tickScheduler.getInterval());
+        metrics.sampleRebuildExecutor(rebuildExecutor.getQueueDepth(), rebuildExecutor.getActiveCount());
     }
 
     /**
-     * Gets all networks across all worlds.
-     * @return Map of world name to list of networks.
+     * Gets the scheduler that spreads network ticks over time.
+     * @return The NetworkTickScheduler.
+     */
+    public NetworkTickScheduler getTickScheduler() {
+        return tickScheduler;
+    }
+
+    // Hands every output's transfer to the region owning the output's container, which routes each item to an input
+    // Returns true if the table used covered every endpoint, so a run that moves nothing means the network is idle
+    private boolean tickNetwork(World world, PipeNetwork network) {
+        NetworkTickEvent event = new NetworkTickEvent();
+        event.begin();
+        long start = profiler == null ? 0 : System.nanoTime();
+        // Endpoints are resolved against the world only when the cached table is stale
+        EndpointTable table = getEndpointTable(world, network);
+        if (table == null) return false;
+        int moved = 0;
+        if (!table.getInputs().isEmpty()) {
+            for (Endpoint output : table.getOutputs()) {
+                BlockPos sourcePos = output.getContainerPos();
+                if (scheduler.owns(world, sourcePos.getX(), sourcePos.getZ())) {
+                    moved += transfer(world, network, table, output);
+                } else {
+                    scheduler.runAt(world, sourcePos.getX(), sourcePos.getZ(), () -> transfer(world, network, table, output));
+                }
+            }
+        }
+        boolean complete = table == network.getEndpointTable();
+        event.end();
+        if (profiler != null) {
+            profiler.recordRun(network, System.nanoTime() - start);
+        }
+        if (event.shouldCommit()) {
+            event.world = world.getName();
+            event.network = network.getId();
+            event.nodes = network.getTotalComponents();
+            event.inputs = table.getInputs().size();
+            event.outputs = table.getOutputs().size();
+            event.itemsMoved = moved;
+            event.staleTable = !complete;
+            event.commit();
+        }
+        return complete;
+    }
+
+    // Moves up to 16 items from an output's container, planned by the engine's TransferPlanner: each item goes to the
+    // first ranked input that takes it and has room. Runs on the region owning the source; items for a destination
+    // owned by another region are handed over instead of moved directly, and what does not fit there comes back.
+    // Returns the number of items taken out of the source
+    private int transfer(World world, PipeNetwork network, EndpointTable table, Endpoint output) {
+        // Never load chunks from the tick; either side may have unloaded since the table was built
+        if (!isAreaLoaded(world, output.getContainerPos(), 0)) return 0;
+        TransferEvent event = new TransferEvent();
+        event.begin();
+        Level nmsWorld = NMSUtils.getNMSWorld(world);
+        BaseContainerBlockEntity source = NMSUtils.getContainerBlockEntity(nmsWorld, output.getContainerPos());
+        if (source == null) return 0;
+        ContainerSlotIndex sourceIndex = getSlotIndex(world.getName(), output.getContainerPos(), source);
+        Map<Endpoint, List<net.minecraft.world.item.ItemStack>> moves = new LinkedHashMap<>();
+        Map<Endpoint, List<net.minecraft.world.item.ItemStack>> handOffs = new LinkedHashMap<>();
+        TransferPlanner.Source<Item> items = new TransferPlanner.Source<>() {
+            @Override
+            public int[] occupiedSlots() {
+                return sourceIndex.getOccupiedSlots();
+            }
+
+            @Override
+            public Item itemAt(int slot) {
+                // The index is only a hint: a slot emptied behind its back is corrected here and skipped
+                net.minecraft.world.item.ItemStack stack = source.getItem(slot);
+                if (stack.isEmpty()) {
+                    sourceIndex.update(slot);
+                    return null;
+                }
+                return stack.getItem();
+            }
+        };
+        List<Endpoint> ranked = table.getRankedInputs(output);
+        int moved = TransferPlanner.transfer(items, output::accepts, ranked, table::takes, (slot, input, max) -> {
+            BlockPos destPos = input.getContainerPos();
+            if (!scheduler.owns(world, destPos.getX(), destPos.getZ())) {
+                // Room cannot be checked from here; the destination region gives back what does not fit
+                net.minecraft.world.item.ItemStack part = source.removeItem(slot, max);
+                sourceIndex.update(slot);
+                if (part.isEmpty()) return 0;
+                handOffs.computeIfAbsent(input, key -> new ArrayList<>(2)).add(part);
+                return part.getCount();
+            }
+            if (!isAreaLoaded(world, destPos, 0)) return 0;
+            BaseContainerBlockEntity dest = NMSUtils.getContainerBlockEntity(nmsWorld, destPos);
+            if (dest == null) return 0;
+            // Copy before the transfer, which may empty the source stack
+            net.minecraft.world.item.ItemStack visualItem = source.getItem(slot).copyWithCount(1);
+            int count = NMSUtils.transferItem(source, sourceIndex, slot, dest, getSlotIndex(world.getName(), destPos, dest), max);
+            if (count > 0) {
+                moves.computeIfAbsent(input, key -> new ArrayList<>(2)).add(visualItem.copyWithCount(count));
+            }
+            return count;
+        }, 16);
+        if (!handOffs.isEmpty()) {
+            source.setChanged();
+        }
+        for (Map.Entry<Endpoint, List<net.minecraft.world.item.ItemStack>> entry : moves.entrySet()) {
+            showMoves(world, network, output, entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<Endpoint, List<net.minecraft.world.item.ItemStack>> entry : handOffs.entrySet()) {
+            handOff(world, network, output, entry.getKey(), entry.getValue());
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            BlockPos sourcePos = output.getContainerPos();
+            event.world = world.getName();
+            event.network = network.getId();
+            event.x = sourcePos.getX();
+            event.y = sourcePos.getY();
+            event.z = sourcePos.getZ();
+            event.inputs = ranked.size();
+            event.itemsMoved = moved;
+            event.handOffs = handOffs.size();
+            event.commit();
+        }
+        return moved;
+    }
+
+    // Cross-region handoff of items already taken out on the source region: insert them on the destination region,
+    // and give back whatever did not fit on the source region. Items are never held by two regions at once
+    private void handOff(World world, PipeNetwork network, Endpoint output, Endpoint input, List<net.minecraft.world.item.ItemStack> taken) {
+        BlockPos destPos = input.getContainerPos();
+        scheduler.runAt(world, destPos.getX(), destPos.getZ(), () -> {
+            BaseContainerBlockEntity dest = isAreaLoaded(world, destPos, 0)
+                ? NMSUtils.getContainerBlockEntity(NMSUtils.getNMSWorld(world), destPos) : null;
+            List<net.minecraft.world.item.ItemStack> moves = new ArrayList<>(taken.size());
+            ContainerSlotIndex destIndex = dest == null ? null : getSlotIndex(world.getName(), destPos, dest);
+            List<net.minecraft.world.item.ItemStack> returned = new ArrayList<>(0);
+            for (net.minecraft.world.item.ItemStack stack : taken) {
+                int count = stack.getCount();
+                net.minecraft.world.item.ItemStack leftover = dest == null ? stack : NMSUtils.insertItem(dest, destIndex, stack);
+                if (leftover.getCount() < count) {
+                    moves.add(stack.copyWithCount(count - leftover.getCount()));
+                }
+                if (!leftover.isEmpty()) {
+                    returned.add(leftover);
+                }
+            }
+            showMoves(world, network, output, input, moves);
+            if (returned.isEmpty()) return;
+            BlockPos sourcePos = output.getContainerPos();
+            scheduler.runAt(world, sourcePos.getX(), sourcePos.getZ(), () -> giveBack(world, sourcePos, returned));
+        });
+    }
+
+    // Puts handed-off items that did not fit back into their source, dropping what no longer fits there
+    private void giveBack(World world, BlockPos sourcePos, List<net.minecraft.world.item.ItemStack> returned) {
+        BaseContainerBlockEntity source = NMSUtils.getContainerBlockEntity(NMSUtils.getNMSWorld(world), sourcePos);
+        ContainerSlotIndex sourceIndex = source == null ? null : getSlotIndex(world.getName(), sourcePos, source);
+        for (net.minecraft.world.item.ItemStack stack : returned) {
+            net.minecraft.world.item.ItemStack leftover = source == null ? stack : NMSUtils.insertItem(source, sourceIndex, stack);
+            if (!leftover.isEmpty()) {
+                world.dropItemNaturally(new org.bukkit.Location(world, sourcePos.getX() + 0.5, sourcePos.getY() + 1, sourcePos.getZ() + 0.5),
+                    NMSUtils.toBukkitItemStack(leftover));
+            }
+        }
+    }
+
+    // Gets the slot index of a container, rebuilding it if it is stale, too old, or built for a replaced block entity.
+    // Containers that tick can change without any event, so theirs is rebuilt on every use and never cached.
+    // Called on the region owning the container
+    private ContainerSlotIndex getSlotIndex(String worldName, BlockPos pos, BaseContainerBlockEntity container) {
+        if (NMSUtils.isTicking(container)) return ContainerSlotIndex.build(container);
+        // Regions of one world share the map on Folia
+        Long2ObjectMap<ContainerSlotIndex> indexes = slotIndexes.computeIfAbsent(worldName,
+            w -> Long2ObjectMaps.synchronize(new Long2ObjectOpenHashMap<>()));
+        ContainerSlotIndex index = indexes.get(pos.asLong());
+        if (index == null || !index.isValidFor(container, SLOT_INDEX_MAX_AGE_NANOS)) {
+            index = ContainerSlotIndex.build(container);
+            indexes.put(pos.asLong(), index);
+        }
+        return index;
+    }
+
+    // Shows the items moved by one transfer; visuals and routes belong to the global region
+    private void showMoves(World world, PipeNetwork network, Endpoint output, Endpoint input, List<net.minecraft.world.item.ItemStack> moves) {
+        if (moves.isEmpty()) return;
+        scheduler.runGlobal(() -> {
+            int total = 0;
+            for (net.minecraft.world.item.ItemStack stack : moves) {
+                total += stack.getCount();
+            }
+            tickScheduler.recordMoved(network, total);
+            metrics.recordItemsMoved(network, total);
+            // Moves made here fire no inventory event, so wake the other networks pulling from or feeding either container
+            wakeContainerUsers(world.getName(), output.getContainerPos().asLong(), network);
+            wakeContainerUsers(world.getName(), input.getContainerPos().asLong(), network);
+            if (profiler != null) {
+                profiler.recordMoved(network, total);
+            }
+            // One cached path per endpoint pair, shared by every item moved along it; a miss adds a cache entry
+            int cached = network.getCachedRouteCount();
+            List<BlockPos> path = network.getRoute(output.getPos(), input.getPos());
+            metrics.recordRoute(network.getCachedRouteCount() == cached);
+            for (net.minecraft.world.item.ItemStack moved : moves) {
+                visuals.spawn(world, path, moved.copyWithCount(1), moved.getCount());
+            }
+        });
+    }
+
+    /**
+     * Restores the networks saved for a world. Stored nodes are trusted until their chunk is checked:
+     * chunks that are already loaded are queued for a rebuild now, the rest when they load.
+     * @param world The world to restore.
+     * @return The number of nodes restored.
+     */
+    public int loadWorld(World world) {
+        List<NetworkStore.StoredNetwork> stored = store.load(world.getName());
+        if (stored.isEmpty()) return 0;
+        int restored = installNetworks(world, stored);
+        registry.publish();
+        DebugLogger.log("<#ffb300>Networks restored</#ffb300> at <#00eaff>" + world.getName() + "</#00eaff> <gray>|</gray> <#00ff99>Nodes:</#00ff99> " + restored);
+        return restored;
+    }
+
+    // Adds stored networks to a world and marks their chunks for a check against the live world
+    private int installNetworks(World world, List<NetworkStore.StoredNetwork> stored) {
+        String worldName = world.getName();
+        Long2ObjectMap<PipeNetwork> index = getNodeIndex(worldName);
+        LongOpenHashSet chunks = unverifiedChunks.computeIfAbsent(worldName, w -> new LongOpenHashSet());
+        NodeKind[] kinds = NodeKind.values();
+        int restored = 0;
+        for (NetworkStore.StoredNetwork saved : stored) {
+            PipeNetwork network = new PipeNetwork(worldName);
+            long[] positions = saved.positions();
+            for (int i = 0; i < positions.length; i++) {
+                long pos = positions[i];
+                if (index.containsKey(pos)) continue;
+                network.addPipe(pos, kinds[saved.kinds()[i]]);
+                index.put(pos, network);
+                chunks.add(ChunkPos.asLong(SectionPos.blockToSectionCoord(BlockPos.getX(pos)), SectionPos.blockToSectionCoord(BlockPos.getZ(pos))));
+            }
+            if (network.getTotalComponents() == 0) continue;
+            network.restoreTopologyVersion(saved.topologyVersion());
+            registry.add(worldName, network);
+            restored += network.getTotalComponents();
+        }
+        LongIterator it = new LongArrayList(chunks).iterator();
+        while (it.hasNext()) {
+            long chunk = it.nextLong();
+            if (world.isChunkLoaded(ChunkPos.getX(chunk), ChunkPos.getZ(chunk))) {
+                verifyStoredChunk(world, ChunkPos.getX(chunk), ChunkPos.getZ(chunk));
+            }
+        }
+        return restored;
+    }
+
+    // Queues a full-height rebuild of a chunk the first time it is seen after its nodes were restored
+    private void verifyStoredChunk(World world, int chunkX, int chunkZ) {
+        LongOpenHashSet chunks = unverifiedChunks.get(world.getName());
+        if (chunks == null || !chunks.remove(ChunkPos.asLong(chunkX, chunkZ))) return;
+        if (chunks.isEmpty()) {
+            unverifiedChunks.remove(world.getName());
+        }
+        queueArea(world.getName(), new Area(chunkX << 4, world.getMinHeight(), chunkZ << 4,
+            (chunkX << 4) + 15, world.getMaxHeight() - 1, (chunkZ << 4) + 15));
+    }
+
+    /**
+     * Saves the networks of every world that changed since its last save.
+     * The graph is copied on the global region thread and written off it, unless the save must finish before returning.
+     * A synchronous save first finishes the async saves that have not run yet, so none is lost on shutdown.
+     * @param async True to write the files on an async task.
+     */
+    public void saveDirtyWorlds(boolean async) {
+        if (!async) {
+            for (Map.Entry<String, PendingSave> entry : pendingSaves.entrySet()) {
+                writeSave(entry.getKey(), entry.getValue());
+            }
+            pendingSaves.clear();
+        }
+        for (String worldName : new ArrayList<>(dirtyWorlds)) {
+            // Writes of a world run one at a time, and a write never replaces a newer copy already on disk
+            PendingSave save = new PendingSave(++saveSequence, copyForStore(worldName));
+            if (async) {
+                pendingSaves.put(worldName, save);
+                scheduler.runAsync(() -> {
+                    writeSave(worldName, save);
+                    pendingSaves.remove(worldName, save);
+                });
+            } else {
+                writeSave(worldName, save);
+            }
+        }
+        dirtyWorlds.clear();
+    }
+
+    // Encodes the networks that changed since their last save, caches them, and writes the world; safe from any thread
+    private void writeSave(String worldName, PendingSave save) {
+        List<NetworkStore.EncodedNetwork> encoded = new ArrayList<>(save.copy().size());
+        for (SavedNetwork saved : save.copy()) {
+            if (saved.encoded() != null) {
+                encoded.add(saved.encoded());
+                continue;
+            }
+            NetworkStore.EncodedNetwork fresh = NetworkStore.encode(saved.copy());
+            encodedNetworks.merge(saved.network(), fresh,
+                (old, next) -> old.topologyVersion() >= next.topologyVersion() ? old : next);
+            encoded.add(fresh);
+        }
+        store.save(worldName, save.sequence(), encoded);
+    }
+
+    // Copies the networks of a world that changed since they were last encoded into arrays the store can write from any thread
+    private List<SavedNetwork> copyForStore(String worldName) {
+        List<PipeNetwork> worldNetworks = registry.get(worldName).networks();
+        // Networks that were merged, split or removed are never saved again
+        Set<PipeNetwork> live = Collections.newSetFromMap(new IdentityHashMap<>());
+        live.addAll(worldNetworks);
+        encodedNetworks.keySet().removeIf(network -> network.getWorldName().equals(worldName) && !live.contains(network));
+        List<SavedNetwork> copy = new ArrayList<>(worldNetworks.size());
+        for (PipeNetwork network : worldNetworks) {
+            NetworkStore.EncodedNetwork encoded = encodedNetworks.get(network);
+            if (encoded != null && encoded.topologyVersion() == network.getTopologyVersion()) {
+                copy.add(new SavedNetwork(network, encoded, null));
+                continue;
+            }
+            long[] positions = network.getPositions().toLongArray();
+            byte[] kinds = new byte[positions.length];
+            for (int i = 0; i < positions.length; i++) {
+                kinds[i] = (byte) network.getKind(positions[i]).ordinal();
+            }
+            copy.add(new SavedNetwork(network, null, NetworkStore.of(network.getTopologyVersion(), positions, kinds)));
+        }
+        return copy;
+    }
+
+    /**
+     * Gets the published networks of all worlds. Safe from any thread.
+     * @return Map of world name to immutable list of networks.
      */
     public Map<String, List<PipeNetwork>> getAllNetworks() {
-        return new HashMap<>(networks);
+        Map<String, List<PipeNetwork>> all = new HashMap<>();
+        for (Map.Entry<String, NetworkRegistry.Snapshot> entry : registry.getAll().entrySet()) {
+            all.put(entry.getKey(), entry.getValue().networks());
+        }
+        return all;
     }
 
     /**
@@ -300,7 +1137,17 @@ public class PipeNetworkManager {
      * @param worldName The world name.
      */
     public void clearNetworks(String worldName) {
-        networks.remove(worldName);
+        registry.clear(worldName);
+        registry.publish();
+        nodeIndex.remove(worldName);
+        containerIndex.remove(worldName);
+        awaitedChunks.remove(worldName);
+        awaitingNetworks.keySet().removeIf(network -> network.getWorldName().equals(worldName));
+        indexedContainers.keySet().removeIf(network -> network.getWorldName().equals(worldName));
+        slotIndexes.remove(worldName);
+        pendingChanges.remove(worldName);
+        pendingAreas.remove(worldName);
+        unverifiedChunks.remove(worldName);
     }
 
     /**
@@ -308,7 +1155,338 @@ public class PipeNetworkManager {
      * @return Total number of networks.
      */
     public int getTotalNetworks() {
-        return networks.values().stream().mapToInt(List::size).sum();
+        int total = 0;
+        for (NetworkRegistry.Snapshot snapshot : registry.getAll().values()) {
+            total += snapshot.networks().size();
+        }
+        return total;
+    }
+
+    /**
+     * Marks the endpoint tables of networks near a container as stale.
+     * Call when a container is placed or removed next to a network.
+     * @param block The container block that changed.
+     */
+    public void onContainerChanged(Block block) {
+        // Matches the reach of getAdjacentContainer
+        markEndpointsDirtyNear(block, CONTAINER_REACH, 1);
+    }
+
+    /**
+     * Marks the endpoint table of a network as stale when an item frame on one of its endpoints changed,
+     * so its filters are read again.
+     * @param attached The block the item frame hangs on.
+     */
+    public void onFilterChanged(Block attached) {
+        markEndpointsDirtyNear(attached, 0, 0);
+    }
+
+    /**
+     * Wakes the networks feeding from or into a container whose contents changed.
+     * Cheap enough for hopper move events: a few index lookups, and nothing at all for containers no network uses.
+     * @param world The world of the container.
+     * @param x The container X coordinate.
+     * @param y The container Y coordinate.
+     * @param z The container Z coordinate.
+     */
+    public void onInventoryChanged(World world, int x, int y, int z) {
+        String worldName = world.getName();
+        // Events fire on the region owning the container, before the change; the next transfer re-indexes it
+        Long2ObjectMap<ContainerSlotIndex> indexes = slotIndexes.get(worldName);
+        if (indexes != null) {
+            indexes.remove(BlockPos.asLong(x, y, z));
+            for (int dir = 0; dir < 4; dir++) {
+                indexes.remove(PipeNetwork.neighbour(BlockPos.asLong(x, y, z), dir));
+            }
+        }
+        scheduler.runGlobal(() -> {
+            wakeContainerUsers(worldName, BlockPos.asLong(x, y, z), null);
+        });
+    }
+
+    // Wakes the networks with an endpoint using the container at a position, except one network.
+    // The other half of a double chest holds the same inventory, so the horizontal neighbours are woken too.
+    // Runs on the global region thread
+    private void wakeContainerUsers(String worldName, long pos, PipeNetwork except) {
+        Long2ObjectMap<List<PipeNetwork>> containers = containerIndex.get(worldName);
+        if (containers == null) return;
+        wakeContainer(containers, pos, except);
+        for (int dir = 0; dir < 4; dir++) {
+            wakeContainer(containers, PipeNetwork.neighbour(pos, dir), except);
+        }
+    }
+
+    // Wakes every network with an endpoint using the container at a position, except one network
+    private void wakeContainer(Long2ObjectMap<List<PipeNetwork>> containers, long pos, PipeNetwork except) {
+        List<PipeNetwork> users = containers.get(pos);
+        if (users == null) return;
+        for (PipeNetwork network : users) {
+            if (network != except) tickScheduler.wake(network);
+        }
+    }
+
+    // Points the containers of a freshly installed endpoint table at their network, replacing the previous table's entries
+    private void indexContainers(String worldName, PipeNetwork network, EndpointTable table) {
+        unindexContainers(worldName, network);
+        Long2ObjectMap<List<PipeNetwork>> containers = containerIndex.computeIfAbsent(worldName, w -> new Long2ObjectOpenHashMap<>());
+        LongOpenHashSet positions = new LongOpenHashSet();
+        for (Endpoint endpoint : table.getInputs()) positions.add(endpoint.getContainerPos().asLong());
+        for (Endpoint endpoint : table.getOutputs()) positions.add(endpoint.getContainerPos().asLong());
+        LongIterator it = positions.iterator();
+        while (it.hasNext()) {
+            long pos = it.nextLong();
+            List<PipeNetwork> users = containers.computeIfAbsent(pos, p -> new ArrayList<>(1));
+            if (!users.contains(network)) users.add(network);
+        }
+        indexedContainers.put(network, positions.toLongArray());
+    }
+
+    // Removes a network from the container index
+    private void unindexContainers(String worldName, PipeNetwork network) {
+        long[] previous = indexedContainers.remove(network);
+        Long2ObjectMap<List<PipeNetwork>> containers = containerIndex.get(worldName);
+        if (previous == null || containers == null) return;
+        for (long pos : previous) {
+            List<PipeNetwork> users = containers.get(pos);
+            if (users == null) continue;
+            users.remove(network);
+            if (users.isEmpty()) {
+                containers.remove(pos);
+                // No network uses the container any more
+                Long2ObjectMap<ContainerSlotIndex> indexes = slotIndexes.get(worldName);
+                if (indexes != null) indexes.remove(pos);
+            }
+        }
+    }
+
+    /**
+     * Refreshes the cached power of endpoints at or next to a block after a redstone change.
+     * Only re-ranks the affected network's endpoints; topology and containers are untouched.
+     * The redstone event fires before the new current reaches the world, so the power is read on the next tick.
+     * @param block The redstone component whose output changed.
+     */
+    public void onPowerChanged(Block block) {
+        World world = block.getWorld();
+        Long2ObjectMap<PipeNetwork> endpoints = registry.get(world.getName()).endpoints();
+        if (endpoints.isEmpty()) return;
+        long pos = NMSUtils.getBlockPos(block).asLong();
+        if (!endpoints.containsKey(pos) && !hasEndpointNeighbour(endpoints, pos)) return;
+        scheduler.runAtLater(world, block.getX(), block.getZ(), () -> {
+            refreshPower(world, pos);
+            for (int dir = 0; dir < 6; dir++) {
+                refreshPower(world, PipeNetwork.neighbour(pos, dir));
+            }
+        }, 1);
+    }
+
+    // True if an endpoint node sits next to the position
+    private static boolean hasEndpointNeighbour(Long2ObjectMap<PipeNetwork> endpoints, long pos) {
+        for (int dir = 0; dir < 6; dir++) {
+            if (endpoints.containsKey(PipeNetwork.neighbour(pos, dir))) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Refreshes the cached power of an endpoint that received a block update.
+     * Blocks that are not endpoint nodes cost one lookup in the published endpoint positions. Endpoints have their
+     * power read, and the global region is only involved if it differs from the installed table.
+     * @param block The block that received the update.
+     */
+    public void onBlockPhysics(Block block) {
+        refreshPower(block.getWorld(), BlockPos.asLong(block.getX(), block.getY(), block.getZ()));
+    }
+
+    // Re-reads the power of an endpoint and updates its network's ranking in place if it changed.
+    // Called on the thread owning the block, which only consults the published endpoint positions;
+    // the node index and the update itself belong to the global region
+    private void refreshPower(World world, long pos) {
+        PipeNetwork published = registry.get(world.getName()).endpoints().get(pos);
+        if (published == null) return;
+        // Without a table, or with one that left this endpoint out, the next build reads fresh power anyway
+        EndpointTable installed = published.peekEndpointTable();
+        Endpoint cached = installed == null ? null : installed.getEndpoint(pos);
+        if (cached == null) return;
+        int power = getRedstonePower(world, BlockPos.of(pos));
+        if (cached.getPower() == power) return;
+        scheduler.runGlobal(() -> {
+            Long2ObjectMap<PipeNetwork> index = nodeIndex.get(world.getName());
+            PipeNetwork network = index == null ? null : index.get(pos);
+            if (network == null) return;
+            EndpointTable table = network.getEndpointTable();
+            if (table == null || table.getEndpoint(pos) == null) return;
+            if (network.updateEndpointPower(pos, power)) {
+                tickScheduler.wake(network);
+            }
+        });
+    }
+
+    // Discards the endpoint tables of every network with a node inside the given box
+    private void markEndpointsDirtyNear(Block block, int horizontal, int vertical) {
+        if (!Bukkit.isGlobalTickThread()) {
+            scheduler.runGlobal(() -> markEndpointsDirtyNear(block, horizontal, vertical));
+            return;
+        }
+        Long2ObjectMap<PipeNetwork> index = nodeIndex.get(block.getWorld().getName());
+        if (index == null || index.isEmpty()) return;
+        for (int dx = -horizontal; dx <= horizontal; dx++) {
+            for (int dy = -vertical; dy <= vertical; dy++) {
+                for (int dz = -horizontal; dz <= horizontal; dz++) {
+                    PipeNetwork network = index.get(BlockPos.asLong(block.getX() + dx, block.getY() + dy, block.getZ() + dz));
+                    if (network != null) {
+                        network.markEndpointsDirty();
+                        tickScheduler.wake(network);
+                    }
+                }
+            }
+        }
+    }
+
+    // Returns the cached endpoint table, or starts rebuilding it from the endpoint nodes if it is stale.
+    // Each endpoint is resolved on the region owning it; on Paper that happens inline and the table is returned
+    // right away, on Folia the table is installed by the last resolution and null is returned until then.
+    // Endpoints in unloaded chunks are left out: the table is installed as incomplete on both platforms and rebuilt
+    // once one of the missing chunks loads
+    private EndpointTable getEndpointTable(World world, PipeNetwork network) {
+        EndpointTable table = network.getEndpointTable();
+        if (table != null || !resolving.add(network)) return table;
+        long version = network.getTopologyVersion();
+        // Copy what the resolvers need, so they never touch the network itself
+        int count = network.getEndpointKinds().size();
+        long[] positions = new long[count];
+        NodeKind[] kinds = new NodeKind[count];
+        BlockPos[] prevPipes = new BlockPos[count];
+        int n = 0;
+        for (Long2ObjectMap.Entry<NodeKind> endpoint : Long2ObjectMaps.fastIterable(network.getEndpointKinds())) {
+            positions[n] = endpoint.getLongKey();
+            kinds[n] = endpoint.getValue();
+            prevPipes[n] = getPrevPipe(network, endpoint.getLongKey());
+            n++;
+        }
+        Endpoint[] resolved = new Endpoint[count];
+        // Per endpoint, an unloaded chunk it depends on, or ALL_LOADED
+        long[] missing = new long[count];
+        // One extra count for this method, so the table cannot be finished before every resolver was scheduled
+        AtomicInteger remaining = new AtomicInteger(count + 1);
+        AtomicBoolean partial = new AtomicBoolean();
+        EndpointTable[] built = new EndpointTable[1];
+        // Runs once every endpoint has been resolved; installs the table unless the topology changed meanwhile
+        Runnable finish = () -> scheduler.runGlobal(() -> {
+            resolving.remove(network);
+            List<Endpoint> inputs = new ArrayList<>();
+            List<Endpoint> outputs = new ArrayList<>();
+            for (Endpoint endpoint : resolved) {
+                if (endpoint == null) continue;
+                if (endpoint.isInput()) {
+                    inputs.add(endpoint);
+                } else {
+                    outputs.add(endpoint);
+                }
+            }
+            EndpointTable result = new EndpointTable(inputs, outputs, version, !partial.get());
+            if (network.getTopologyVersion() == version) {
+                network.setEndpointTable(result);
+                indexContainers(world.getName(), network, result);
+                awaitChunks(world, network, missing);
+            }
+            built[0] = result;
+        });
+        for (int i = 0; i < resolved.length; i++) {
+            int slot = i;
+            BlockPos pos = BlockPos.of(positions[i]);
+            scheduler.runAt(world, pos.getX(), pos.getZ(), () -> {
+                // Never load chunks from the tick; endpoints in unloaded chunks sit out until they load
+                missing[slot] = findUnloadedChunk(world, pos, CONTAINER_REACH);
+                if (missing[slot] != ALL_LOADED) {
+                    partial.set(true);
+                } else {
+                    BlockPos containerPos = getAdjacentContainer(world, pos);
+                    if (containerPos != null) {
+                        resolved[slot] = new Endpoint(pos, containerPos, getRedstonePower(world, pos), kinds[slot], prevPipes[slot],
+                            NMSUtils.getFrameFilter(NMSUtils.getNMSWorld(world), pos));
+                    }
+                }
+                if (remaining.decrementAndGet() == 0) finish.run();
+            });
+        }
+        if (remaining.decrementAndGet() == 0) finish.run();
+        return built[0];
+    }
+
+    // Registers a network whose installed table left out endpoints under the chunks they wait for,
+    // replacing what the network waited for before
+    private void awaitChunks(World world, PipeNetwork network, long[] missing) {
+        String worldName = world.getName();
+        stopAwaitingChunks(worldName, network);
+        LongOpenHashSet chunks = new LongOpenHashSet();
+        for (long chunk : missing) {
+            if (chunk == ALL_LOADED) continue;
+            if (world.isChunkLoaded(ChunkPos.getX(chunk), ChunkPos.getZ(chunk))) {
+                // Loaded while the endpoints were being resolved, so its load event may already have gone by
+                network.markEndpointsDirty();
+                tickScheduler.wake(network);
+                return;
+            }
+            chunks.add(chunk);
+        }
+        if (chunks.isEmpty()) return;
+        Long2ObjectMap<List<PipeNetwork>> waiting = awaitedChunks.computeIfAbsent(worldName, w -> new Long2ObjectOpenHashMap<>());
+        LongIterator it = chunks.iterator();
+        while (it.hasNext()) {
+            waiting.computeIfAbsent(it.nextLong(), c -> new ArrayList<>(1)).add(network);
+        }
+        awaitingNetworks.put(network, chunks.toLongArray());
+    }
+
+    // Forgets the chunks a network's incomplete table waits for
+    private void stopAwaitingChunks(String worldName, PipeNetwork network) {
+        long[] previous = awaitingNetworks.remove(network);
+        Long2ObjectMap<List<PipeNetwork>> waiting = awaitedChunks.get(worldName);
+        if (previous == null || waiting == null) return;
+        for (long chunk : previous) {
+            List<PipeNetwork> networks = waiting.get(chunk);
+            if (networks == null) continue;
+            networks.remove(network);
+            if (networks.isEmpty()) waiting.remove(chunk);
+        }
+    }
+
+    // Rebuilds the incomplete tables that left out endpoints in a chunk that just loaded
+    private void onAwaitedChunkLoaded(String worldName, int chunkX, int chunkZ) {
+        Long2ObjectMap<List<PipeNetwork>> waiting = awaitedChunks.get(worldName);
+        if (waiting == null) return;
+        List<PipeNetwork> networks = waiting.get(ChunkPos.asLong(chunkX, chunkZ));
+        if (networks == null) return;
+        for (PipeNetwork network : new ArrayList<>(networks)) {
+            stopAwaitingChunks(worldName, network);
+            network.markEndpointsDirty();
+            tickScheduler.wake(network);
+        }
+    }
+
+    // True if every chunk within a horizontal radius of a block is loaded
+    private static boolean isAreaLoaded(World world, BlockPos pos, int radius) {
+        return findUnloadedChunk(world, pos, radius) == ALL_LOADED;
+    }
+
+    // Finds a chunk within a horizontal radius of a block that is not loaded, as a packed ChunkPos, or ALL_LOADED.
+    // The radius is below a chunk width, so the chunks of the four corners are all the chunks the square touches
+    private static long findUnloadedChunk(World world, BlockPos pos, int radius) {
+        for (int dx = -radius; dx <= radius; dx += Math.max(1, 2 * radius)) {
+            for (int dz = -radius; dz <= radius; dz += Math.max(1, 2 * radius)) {
+                int chunkX = (pos.getX() + dx) >> 4;
+                int chunkZ = (pos.getZ() + dz) >> 4;
+                if (!world.isChunkLoaded(chunkX, chunkZ)) return ChunkPos.asLong(chunkX, chunkZ);
+            }
+        }
+        return ALL_LOADED;
+    }
+
+    // First network neighbour of a node in north, east, south, west, up, down order (the BlockFace order)
+    private static BlockPos getPrevPipe(PipeNetwork network, long pos) {
+        int mask = network.getNeighbourMask(pos);
+        if (mask == 0) return null;
+        return BlockPos.of(PipeNetwork.neighbour(pos, Integer.numberOfTrailingZeros(mask)));
     }
 
     // Helper to get redstone power at a block
@@ -317,7 +1495,8 @@ public class PipeNetworkManager {
         return block.getBlockPower();
     }
 
-    // Helper to get adjacent container block position (returns null if none)
+    // Helper to get adjacent container block position (returns null if none).
+    // Composite faces reach CONTAINER_REACH blocks out horizontally; callers check those chunks are loaded first
     private BlockPos getAdjacentContainer(World world, BlockPos pos) {
         for (BlockFace face : BlockFace.values()) {
             if (face == BlockFace.SELF) continue;
@@ -329,103 +1508,29 @@ public class PipeNetworkManager {
         return null;
     }
 
-    // Manhattan distance
-    private static int manhattan(BlockPos a, BlockPos b) {
-        return Math.abs(a.getX() - b.getX()) + Math.abs(a.getY() - b.getY()) + Math.abs(a.getZ() - b.getZ());
-    }
-
-    // Utility: Compute 'leftness' of candidate endpoint relative to pipe direction (XZ plane)
-    private static int leftness(BlockPos from, BlockPos via, BlockPos candidate) {
-        // Direction of travel: via -> from (previous pipe to current output)
-        int dx1 = from.getX() - via.getX();
-        int dz1 = from.getZ() - via.getZ();
-        // Direction to candidate: from -> candidate
-        int dx2 = candidate.getX() - from.getX();
-        int dz2 = candidate.getZ() - from.getZ();
-        // Cross product (Y component): dx1*dz2 - dz1*dx2
-        return dx1 * dz2 - dz1 * dx2;
-    }
-
-    // Helper class for endpoint info
-    private static class Endpoint {
-        final BlockPos pos;
-        final BlockPos containerPos;
-        final int power;
-        Endpoint(BlockPos pos, BlockPos containerPos, int power) {
-            this.pos = pos;
-            this.containerPos = containerPos;
-            this.power = power;
-        }
-    }
-
     // Helper to check if a block is an endpoint (copper block, cut copper, chiseled copper, and all variants)
     private static boolean isEndpointBlock(Material mat) {
         return BOTH_ENDPOINTS.contains(mat) || OUTPUT_ENDPOINTS.contains(mat) || INPUT_ENDPOINTS.contains(mat);
     }
 
-    // Helper: Find shortest path between two pipe positions in the network (BFS)
-    private List<BlockPos> findPipePath(PipeNetwork network, BlockPos start, BlockPos end) {
-        Map<BlockPos, BlockPos> prev = new HashMap<>();
-        Queue<BlockPos> queue = new LinkedList<>();
-        Set<BlockPos> visited = new HashSet<>();
-        queue.add(start);
-        visited.add(start);
-        while (!queue.isEmpty()) {
-            BlockPos curr = queue.poll();
-            if (curr.equals(end)) break;
-            for (BlockPos adj : NMSUtils.getAdjacentPositions(curr)) {
-                if (!visited.contains(adj) && network.hasPipeAt(adj)) {
-                    queue.add(adj);
-                    visited.add(adj);
-                    prev.put(adj, curr);
-                }
-            }
-        }
-        // Reconstruct path
-        List<BlockPos> path = new ArrayList<>();
-        BlockPos curr = end;
-        while (curr != null && !curr.equals(start)) {
-            path.add(curr);
-            curr = prev.get(curr);
-        }
-        if (curr != null) path.add(start);
-        Collections.reverse(path);
-        return path;
-    }
-
-    // Helper: Spawn and animate an ItemDisplay along the pipe path
-    private void spawnPipeVisual(World world, List<BlockPos> path, ItemStack item) {
-        if (path.isEmpty()) return;
-        // Random offset for group effect
-        double offsetX = (Math.random() - 0.5) * 0.3; // -0.15 to +0.15
-        double offsetZ = (Math.random() - 0.5) * 0.3;
-        Location start = new Location(world, path.get(0).getX() + 0.5 + offsetX, path.get(0).getY() + 0.5, path.get(0).getZ() + 0.5 + offsetZ);
-        ItemDisplay display = (ItemDisplay) world.spawn(start, ItemDisplay.class, e -> {
-            e.setItemStack(item.asOne());
-            e.setInvulnerable(true);
-            e.setGravity(false);
-            e.setTransformation(new Transformation(
-                new Vector3f(0, 0, 0),
-                new Quaternionf(),
-                new Vector3f(0.5f, 0.5f, 0.5f),
-                new Quaternionf()
-            ));
-        });
-        display.setTeleportDuration(1);
-        new BukkitRunnable() {
-            int step = 0;
-            @Override
-            public void run() {
-                if (step >= path.size()) {
-                    display.remove();
-                    cancel();
-                    return;
-                }
-                BlockPos pos = path.get(step);
-                display.setTeleportDuration(1);
-                display.teleportAsync(new Location(world, pos.getX() + 0.5 + offsetX, pos.getY() + 0.5, pos.getZ() + 0.5 + offsetZ));
-                step++;
-            }
-        }.runTaskTimer(plugin, 1L, 2L);
+    /**
+     * Checks if a material forms part of a pipe network (a pipe or any endpoint block).
+     * @param material The material to check.
+     * @return True if blocks of this material are network nodes.
+     */
+    public static boolean isNetworkBlock(Material material) {
+        return NMSUtils.isPipe(material) || isEndpointBlock(material);
+    }
+
+    /**
+     * Classifies a material as a network node.
+     * @param material The material to classify.
+     * @return The node kind, or null if the material is not part of pipe networks.
+     */
+    public static NodeKind getNodeKind(Material material) {
+        if (BOTH_ENDPOINTS.contains(material)) return NodeKind.BOTH;
+        if (OUTPUT_ENDPOINTS.contains(material)) return NodeKind.OUTPUT;
+        if (INPUT_ENDPOINTS.contains(material)) return NodeKind.INPUT;
+        return NMSUtils.isPipe(material) ? NodeKind.PIPE : null;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,355 @@
+/**
+ * Renders items travelling through pipes.
+ * In packet mode the display entities exist only on the clients of nearby players.
+ */
+package fun.mntale.rustyPipes.managers;
+
+import fun.mntale.rustyPipes.utils.NMSUtils;
+import fun.mntale.rustyPipes.utils.PipeScheduler;
+import fun.mntale.rustyPipes.utils.PipeSettings;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import it.unimi.dsi.fastutil.ints.IntArrayFIFOQueue;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.game.ClientboundAddEntityPacket;
+import net.minecraft.network.protocol.game.ClientboundRemoveEntitiesPacket;
+import net.minecraft.network.protocol.game.ClientboundSetEntityDataPacket;
+import net.minecraft.network.protocol.game.ClientboundTeleportEntityPacket;
+import net.minecraft.network.syncher.SynchedEntityData;
+import net.minecraft.world.entity.Display;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.entity.PositionMoveRotation;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.phys.Vec3;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.craftbukkit.entity.CraftPlayer;
+import org.bukkit.entity.ItemDisplay;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.util.Transformation;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Spawns and animates pipe visuals according to the configured {@link PipeSettings.VisualMode}.
+ * Visual cost follows what players can see: paths nobody is near are skipped, batches collapse into
+ * one stack visual, and global and per-player caps bound the visuals in flight.
+ * Must be used from the global region thread (the main thread on Paper).
+ */
+public class VisualManager {
+    private static final float ITEM_SCALE = 0.5f;
+    private static final int CACHED_ITEM_DATA = 256;
+
+    private final PipeScheduler scheduler;
+    private final PipeSettings settings;
+
+    // Packet mode state
+    private final List<PacketVisual> packetVisuals = new ArrayList<>();
+    private final IntArrayFIFOQueue freeEntityIds = new IntArrayFIFOQueue();
+    // Visuals in flight per viewing player, for the per-player budget
+    private final Object2IntOpenHashMap<UUID> viewerLoad = new Object2IntOpenHashMap<>();
+    // Entity data per component-less item and size, so repeated transfers of the same item reuse one conversion
+    private final Map<VisualKey, List<SynchedEntityData.DataValue<?>>> itemData = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<VisualKey, List<SynchedEntityData.DataValue<?>>> eldest) {
+            return size() > CACHED_ITEM_DATA;
+        }
+    };
+    private Display.ItemDisplay template;
+    private ScheduledTask packetTask;
+
+    // Entity mode state; entities are animated on their own region threads
+    private final Set<ItemDisplay> entityVisuals = ConcurrentHashMap.newKeySet();
+    // Player positions sampled on each player's own thread, read here to pick viewers
+    private final Map<UUID, ViewerPosition> viewerPositions = new ConcurrentHashMap<>();
+    private ScheduledTask viewerTask;
+
+    // Where a player was when last sampled
+    private record ViewerPosition(Player player, World world, double x, double y, double z) {}
+
+    // Cache key for packed item display data
+    private record VisualKey(Item item, int sizeClass) {}
+
+    // A client-side display entity walking along a path
+    private static final class PacketVisual {
+        final int entityId;
+        final List<BlockPos> path;
+        final double offsetX;
+        final double offsetZ;
+        final List<Player> viewers;
+        int step;
+
+        PacketVisual(int entityId, List<BlockPos> path, double offsetX, double offsetZ, List<Player> viewers) {
+            this.entityId = entityId;
+            this.path = path;
+            this.offsetX = offsetX;
+            this.offsetZ = offsetZ;
+            this.viewers = viewers;
+        }
+    }
+
+    /**
+     * Constructs a VisualManager.
+     * @param scheduler The scheduler for animation tasks.
+     * @param settings The plugin settings.
+     */
+    public VisualManager(PipeScheduler scheduler, PipeSettings settings) {
+        this.scheduler = scheduler;
+        this.settings = settings;
+    }
+
+    /**
+     * Shows items travelling along a pipe path.
+     * Nothing is shown when no player is within view range of the path or the visual budgets are spent.
+     * With stack aggregation, a whole batch is drawn as one visual that grows with the batch size.
+     * @param world The world of the path.
+     * @param path The pipe path, start to end.
+     * @param item The item to show; not modified or retained.
+     * @param count How many of the item were moved together.
+     */
+    public void spawn(World world, List<BlockPos> path, net.minecraft.world.item.ItemStack item, int count) {
+        if (path.isEmpty() || item.isEmpty() || count <= 0) return;
+        if (settings.getVisualMode() == PipeSettings.VisualMode.NONE) return;
+        if (viewerTask == null) {
+            sampleViewers();
+            viewerTask = scheduler.runGlobalTimer(this::sampleViewers, 10L, 10L);
+        }
+        List<Player> viewers = findViewers(world, path);
+        if (viewers.isEmpty()) return;
+        boolean aggregate = settings.isAggregateStacks();
+        int visuals = aggregate ? 1 : count;
+        int sizeClass = aggregate ? sizeClass(count) : 0;
+        for (int i = 0; i < visuals && getActiveCount() < settings.getMaxVisuals(); i++) {
+            switch (settings.getVisualMode()) {
+                case PACKET -> spawnPacketVisual(world, path, item, sizeClass, viewers);
+                case ENTITY -> spawnEntityVisual(world, path, NMSUtils.toBukkitItemStack(item).asOne(), sizeClass);
+                case NONE -> {
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes every visual in flight and stops the animation task.
+     */
+    public void shutdown() {
+        for (PacketVisual visual : packetVisuals) {
+            sendToViewers(visual, new ClientboundRemoveEntitiesPacket(visual.entityId));
+        }
+        packetVisuals.clear();
+        viewerLoad.clear();
+        if (packetTask != null) {
+            packetTask.cancel();
+            packetTask = null;
+        }
+        for (ItemDisplay display : entityVisuals) {
+            display.remove();
+        }
+        entityVisuals.clear();
+        if (viewerTask != null) {
+            viewerTask.cancel();
+            viewerTask = null;
+        }
+        viewerPositions.clear();
+    }
+
+    /**
+     * Gets the number of visuals currently in flight.
+     * @return Visuals in flight across both modes.
+     */
+    public int getActiveCount() {
+        return packetVisuals.size() + entityVisuals.size();
+    }
+
+    // Sends an add-entity and entity-data packet pair to the nearby players that still have budget
+    private void spawnPacketVisual(World world, List<BlockPos> path, net.minecraft.world.item.ItemStack item, int sizeClass, List<Player> candidates) {
+        BlockPos start = path.get(0);
+        List<Player> viewers = new ArrayList<>(candidates.size());
+        for (Player player : candidates) {
+            if (viewerLoad.getInt(player.getUniqueId()) < settings.getMaxVisualsPerPlayer()) {
+                viewers.add(player);
+            }
+        }
+        if (viewers.isEmpty()) return;
+        for (Player player : viewers) {
+            viewerLoad.addTo(player.getUniqueId(), 1);
+        }
+        int entityId = freeEntityIds.isEmpty() ? Bukkit.getUnsafe().nextEntityId() : freeEntityIds.dequeueInt();
+        // Random offset for group effect
+        double offsetX = (Math.random() - 0.5) * 0.3; // -0.15 to +0.15
+        double offsetZ = (Math.random() - 0.5) * 0.3;
+        PacketVisual visual = new PacketVisual(entityId, path, offsetX, offsetZ, viewers);
+        sendToViewers(visual, new ClientboundAddEntityPacket(entityId, UUID.randomUUID(),
+            start.getX() + 0.5 + offsetX, start.getY() + 0.5, start.getZ() + 0.5 + offsetZ,
+            0f, 0f, EntityType.ITEM_DISPLAY, 0, Vec3.ZERO, 0d));
+        sendToViewers(visual, new ClientboundSetEntityDataPacket(entityId, getItemData(world, item, sizeClass)));
+        packetVisuals.add(visual);
+        if (packetTask == null) {
+            packetTask = scheduler.runGlobalTimer(this::tickPacketVisuals, 1L, 2L);
+        }
+    }
+
+    // Advances every packet visual one pipe segment; finished ones are removed and their ids recycled
+    private void tickPacketVisuals() {
+        Iterator<PacketVisual> it = packetVisuals.iterator();
+        while (it.hasNext()) {
+            PacketVisual visual = it.next();
+            if (visual.step >= visual.path.size()) {
+                sendToViewers(visual, new ClientboundRemoveEntitiesPacket(visual.entityId));
+                freeEntityIds.enqueue(visual.entityId);
+                for (Player player : visual.viewers) {
+                    if (viewerLoad.addTo(player.getUniqueId(), -1) <= 1) {
+                        viewerLoad.removeInt(player.getUniqueId());
+                    }
+                }
+                it.remove();
+                continue;
+            }
+            BlockPos pos = visual.path.get(visual.step);
+            Vec3 target = new Vec3(pos.getX() + 0.5 + visual.offsetX, pos.getY() + 0.5, pos.getZ() + 0.5 + visual.offsetZ);
+            sendToViewers(visual, new ClientboundTeleportEntityPacket(visual.entityId,
+                new PositionMoveRotation(target, Vec3.ZERO, 0f, 0f), Set.of(), false));
+            visual.step++;
+        }
+        if (packetVisuals.isEmpty() && packetTask != null) {
+            packetTask.cancel();
+            packetTask = null;
+        }
+    }
+
+    // Builds (or reuses) the entity data describing an item display showing the given item
+    private List<SynchedEntityData.DataValue<?>> getItemData(World world, net.minecraft.world.item.ItemStack item, int sizeClass) {
+        boolean plain = item.getComponentsPatch().isEmpty();
+        VisualKey key = new VisualKey(item.getItem(), sizeClass);
+        if (plain) {
+            List<SynchedEntityData.DataValue<?>> cached = itemData.get(key);
+            if (cached != null) return cached;
+        }
+        if (template == null) {
+            // Never added to a level; only used to produce correctly typed entity data
+            template = new Display.ItemDisplay(EntityType.ITEM_DISPLAY, NMSUtils.getNMSWorld(world));
+            template.setPosRotationInterpolationDuration(1);
+        }
+        float scale = scale(sizeClass);
+        template.setTransformation(new com.mojang.math.Transformation(
+            new Vector3f(0, 0, 0),
+            new Quaternionf(),
+            new Vector3f(scale, scale, scale),
+            new Quaternionf()
+        ));
+        template.setItemStack(item.copyWithCount(1));
+        List<SynchedEntityData.DataValue<?>> values = template.getEntityData().getNonDefaultValues();
+        List<SynchedEntityData.DataValue<?>> data = values == null ? List.of() : List.copyOf(values);
+        if (plain) {
+            itemData.put(key, data);
+        }
+        return data;
+    }
+
+    // Size bucket for a batch: single item, a few, a handful, a full transfer or more
+    private static int sizeClass(int count) {
+        if (count <= 1) return 0;
+        if (count <= 4) return 1;
+        if (count <= 15) return 2;
+        return 3;
+    }
+
+    // Display scale for a size bucket
+    private static float scale(int sizeClass) {
+        return ITEM_SCALE * (1f + 0.2f * sizeClass);
+    }
+
+    // Players in the world within view range of any part of a path, as of their last sampled position
+    private List<Player> findViewers(World world, List<BlockPos> path) {
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+        for (BlockPos pos : path) {
+            minX = Math.min(minX, pos.getX());
+            minY = Math.min(minY, pos.getY());
+            minZ = Math.min(minZ, pos.getZ());
+            maxX = Math.max(maxX, pos.getX() + 1);
+            maxY = Math.max(maxY, pos.getY() + 1);
+            maxZ = Math.max(maxZ, pos.getZ() + 1);
+        }
+        double range = settings.getVisualViewRange();
+        double rangeSq = range * range;
+        List<Player> viewers = new ArrayList<>(4);
+        for (ViewerPosition viewer : viewerPositions.values()) {
+            if (viewer.world() != world) continue;
+            // Distance from the player to the bounding box of the path
+            double dx = Math.max(0, Math.max(minX - viewer.x(), viewer.x() - maxX));
+            double dy = Math.max(0, Math.max(minY - viewer.y(), viewer.y() - maxY));
+            double dz = Math.max(0, Math.max(minZ - viewer.z(), viewer.z() - maxZ));
+            if (dx * dx + dy * dy + dz * dz <= rangeSq) {
+                viewers.add(viewer.player());
+            }
+        }
+        return viewers;
+    }
+
+    // Asks every online player's thread for its position; players that left or were removed are forgotten
+    private void sampleViewers() {
+        viewerPositions.values().removeIf(viewer -> !viewer.player().isOnline());
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            UUID id = player.getUniqueId();
+            scheduler.runAt(player, () -> {
+                Location loc = player.getLocation();
+                viewerPositions.put(id, new ViewerPosition(player, player.getWorld(), loc.getX(), loc.getY(), loc.getZ()));
+            }, () -> viewerPositions.remove(id));
+        }
+    }
+
+    // Sends a packet to every viewer of a visual that is still online
+    private static void sendToViewers(PacketVisual visual, Packet<?> packet) {
+        for (Player player : visual.viewers) {
+            if (player.isOnline()) {
+                ((CraftPlayer) player).getHandle().connection.send(packet);
+            }
+        }
+    }
+
+    // Helper: Spawn and animate an ItemDisplay along the pipe path, on the region owning the path start
+    private void spawnEntityVisual(World world, List<BlockPos> path, ItemStack item, int sizeClass) {
+        float scale = scale(sizeClass);
+        // Random offset for group effect
+        double offsetX = (Math.random() - 0.5) * 0.3; // -0.15 to +0.15
+        double offsetZ = (Math.random() - 0.5) * 0.3;
+        Location start = new Location(world, path.get(0).getX() + 0.5 + offsetX, path.get(0).getY() + 0.5, path.get(0).getZ() + 0.5 + offsetZ);
+        scheduler.runAt(start, () -> {
+            ItemDisplay display = (ItemDisplay) world.spawn(start, ItemDisplay.class, e -> {
+                e.setItemStack(item.asOne());
+                e.setInvulnerable(true);
+                e.setGravity(false);
+                // Never saved with its chunk, so an unload cannot leave a stray display behind
+                e.setPersistent(false);
+                e.setTransformation(new Transformation(
+                    new Vector3f(0, 0, 0),
+                    new Quaternionf(),
+                    new Vector3f(scale, scale, scale),
+                    new Quaternionf()
+                ));
+            });
+            display.setTeleportDuration(1);
+            entityVisuals.add(display);
+            int[] step = {0};
+            scheduler.runEntityTimer(display, task -> {
+                if (step[0] >= path.size()) {
+                    display.remove();
+                    entityVisuals.remove(display);
+                    task.cancel();
+                    return;
+                }
+                BlockPos pos = path.get(step[0]);
+                display.setTeleportDuration(1);
+                display.teleportAsync(new Location(world, pos.getX() + 0.5 + offsetX, pos.getY() + 0.5, pos.getZ() + 0.5 + offsetZ));
+                step[0]++;
+            }, () -> entityVisuals.remove(display), 1L, 2L);
+        });
+    }
+}
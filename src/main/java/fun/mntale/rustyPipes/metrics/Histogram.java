@@ -0,0 +1,62 @@
+/**
+ * Fixed-bucket histogram of durations.
+ */
+package fun.mntale.rustyPipes.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts durations into fixed buckets. Recording is a short scan over the bucket bounds plus two striped adds,
+ * so it allocates nothing and never contends between threads.
+ */
+public class Histogram {
+    private final long[] boundsNanos;
+    // One more bucket than bounds: the last one counts everything above the largest bound
+    private final LongAdder[] buckets;
+    private final LongAdder sumNanos = new LongAdder();
+
+    /**
+     * Constructs a Histogram.
+     * @param boundsNanos The upper bounds of the buckets in nanoseconds, ascending.
+     */
+    public Histogram(long... boundsNanos) {
+        this.boundsNanos = boundsNanos.clone();
+        this.buckets = new LongAdder[boundsNanos.length + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records one duration.
+     * @param nanos The duration in nanoseconds.
+     */
+    public void record(long nanos) {
+        int i = 0;
+        while (i < boundsNanos.length && nanos > boundsNanos[i]) {
+            i++;
+        }
+        buckets[i].increment();
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * Writes the histogram in Prometheus text format, in seconds.
+     * @param out The output.
+     * @param name The metric name.
+     * @param help The metric description.
+     */
+    public void write(StringBuilder out, String name, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" histogram\n");
+        long cumulative = 0;
+        for (int i = 0; i < boundsNanos.length; i++) {
+            cumulative += buckets[i].sum();
+            out.append(name).append("_bucket{le=\"").append(boundsNanos[i] / 1e9).append("\"} ").append(cumulative).append('\n');
+        }
+        cumulative += buckets[boundsNanos.length].sum();
+        out.append(name).append("_bucket{le=\"+Inf\"} ").append(cumulative).append('\n');
+        out.append(name).append("_sum ").append(sumNanos.sum() / 1e9).append('\n');
+        out.append(name).append("_count ").append(cumulative).append('\n');
+    }
+}
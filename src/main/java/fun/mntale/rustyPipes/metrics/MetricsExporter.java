@@ -0,0 +1,103 @@
+/**
+ * Publishes the plugin metrics in Prometheus text format.
+ */
+package fun.mntale.rustyPipes.metrics;
+
+import com.sun.net.httpserver.HttpServer;
+import fun.mntale.rustyPipes.utils.DebugLogger;
+import fun.mntale.rustyPipes.utils.PipeScheduler;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the metrics on a local HTTP endpoint and/or writes them to a text file at a fixed interval,
+ * for Prometheus to scrape directly or through the node exporter's textfile collector.
+ * The endpoint only listens on the loopback address.
+ */
+public class MetricsExporter {
+    private final PipeMetrics metrics;
+    private HttpServer server;
+    private ScheduledTask fileTask;
+
+    /**
+     * Constructs a MetricsExporter.
+     * @param metrics The metrics to publish.
+     */
+    public MetricsExporter(PipeMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Starts serving the metrics on http://127.0.0.1:port/metrics.
+     * @param port The port.
+     */
+    public void startHttp(int port) {
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        } catch (IOException e) {
+            DebugLogger.log("<#ff6b6b>Failed to start the metrics endpoint on port " + port + ":</#ff6b6b> <gray>" + e.getMessage() + "</gray>");
+            return;
+        }
+        server.createContext("/metrics", exchange -> {
+            byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        // Requests are served on the server's own dispatcher thread
+        server.start();
+    }
+
+    /**
+     * Starts writing the metrics to a file at a fixed interval. The file is replaced atomically, so readers
+     * never see a partial scrape.
+     * @param scheduler The scheduler running the writes async.
+     * @param file The file to write.
+     * @param intervalSeconds Seconds between writes.
+     */
+    public void startFile(PipeScheduler scheduler, File file, int intervalSeconds) {
+        fileTask = scheduler.runAsyncTimer(() -> writeFile(file), intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops the endpoint and the file writes.
+     */
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (fileTask != null) {
+            fileTask.cancel();
+            fileTask = null;
+        }
+    }
+
+    // Renders every metric
+    private String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        metrics.writePrometheus(out);
+        return out.toString();
+    }
+
+    private void writeFile(File file) {
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            Files.writeString(temp.toPath(), scrape(), StandardCharsets.UTF_8);
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            DebugLogger.log("<#ff6b6b>Failed to write metrics to " + file + ":</#ff6b6b> <gray>" + e.getMessage() + "</gray>");
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * Short per-network profiling sessions behind the profile command.
+ */
+package fun.mntale.rustyPipes.metrics;
+
+import fun.mntale.rustyPipes.models.PipeNetwork;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects what each network costs the global region over a fixed number of server ticks: the time spent
+ * running it, its share of the time spent applying rebuilds that touched it, and the items it moved.
+ * A rebuild touching several networks is split among them, so the samples add up to the real total.
+ * Unlike {@link PipeMetrics} it keeps per-network timings, so it only exists while a session runs.
+ * Must be used from the global region thread (the main thread on Paper).
+ */
+public class NetworkProfiler {
+    private final long durationTicks;
+    private final Map<PipeNetwork, Totals> totals = new IdentityHashMap<>();
+    private long elapsedTicks;
+
+    /**
+     * What one network cost during a session.
+     * @param network The network; may have been merged or removed since.
+     * @param runs The number of times it ran.
+     * @param runNanos The time spent running it, including transfers that ran inline.
+     * @param rebuilds The number of applied area rebuilds that touched it.
+     * @param rebuildNanos Its share of the time spent applying those rebuilds.
+     * @param itemsMoved The number of items it moved.
+     * @param ticks The length of the session in server ticks.
+     */
+    public record Sample(PipeNetwork network, int runs, long runNanos, int rebuilds, long rebuildNanos, long itemsMoved, long ticks) {
+        /**
+         * Gets the average global region time per server tick spent on the network.
+         * @return The cost in milliseconds per tick.
+         */
+        public double millisPerTick() {
+            return ticks == 0 ? 0 : (runNanos + rebuildNanos) / 1_000_000.0 / ticks;
+        }
+    }
+
+    // Mutable totals of one network during the session
+    private static final class Totals {
+        int runs;
+        long runNanos;
+        int rebuilds;
+        long rebuildNanos;
+        long itemsMoved;
+    }
+
+    /**
+     * Constructs a NetworkProfiler.
+     * @param durationTicks The length of the session in server ticks.
+     */
+    public NetworkProfiler(long durationTicks) {
+        this.durationTicks = Math.max(1, durationTicks);
+    }
+
+    /**
+     * Records one run of a network.
+     * @param network The network.
+     * @param nanos The duration in nanoseconds.
+     */
+    public void recordRun(PipeNetwork network, long nanos) {
+        Totals entry = totals(network);
+        entry.runs++;
+        entry.runNanos += nanos;
+    }
+
+    /**
+     * Records an applied area rebuild that touched a network.
+     * @param network The network.
+     * @param nanos The network's share of the time spent applying the rebuild.
+     */
+    public void recordRebuild(PipeNetwork network, long nanos) {
+        Totals entry = totals(network);
+        entry.rebuilds++;
+        entry.rebuildNanos += nanos;
+    }
+
+    /**
+     * Records items moved by a network.
+     * @param network The network.
+     * @param count The number of items moved.
+     */
+    public void recordMoved(PipeNetwork network, int count) {
+        totals(network).itemsMoved += count;
+    }
+
+    /**
+     * Advances the session by one server tick.
+     * @return True once the session is over.
+     */
+    public boolean tick() {
+        return ++elapsedTicks >= durationTicks;
+    }
+
+    /**
+     * Gets the results so far, most expensive network first.
+     * @return The samples.
+     */
+    public List<Sample> getSamples() {
+        List<Sample> result = new ArrayList<>(totals.size());
+        for (Map.Entry<PipeNetwork, Totals> entry : totals.entrySet()) {
+            Totals t = entry.getValue();
+            result.add(new Sample(entry.getKey(), t.runs, t.runNanos, t.rebuilds, t.rebuildNanos, t.itemsMoved, elapsedTicks));
+        }
+        result.sort(Comparator.comparingDouble(Sample::millisPerTick).reversed()
+            .thenComparing(Comparator.comparingLong(Sample::itemsMoved).reversed()));
+        return result;
+    }
+
+    // Totals of a network, created on first use
+    private Totals totals(PipeNetwork network) {
+        return totals.computeIfAbsent(network, key -> new Totals());
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * Flight Recorder event for one network run.
+ */
+package fun.mntale.rustyPipes.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Spans one run of a network on the global region thread, including the transfers that run inline there
+ * (all of them on Paper).
+ */
+@Name("fun.mntale.rustyPipes.NetworkTick")
+@Label("Pipe Network Tick")
+@Category({"RustyPipes"})
+@Description("One run of a pipe network")
+@StackTrace(false)
+public class NetworkTickEvent extends Event {
+    @Label("World")
+    public String world;
+
+    @Label("Network")
+    @Description("Runtime id of the network, as in the metrics")
+    public long network;
+
+    @Label("Nodes")
+    public int nodes;
+
+    @Label("Inputs")
+    public int inputs;
+
+    @Label("Outputs")
+    public int outputs;
+
+    @Label("Items Moved")
+    @Description("Items moved by transfers that ran inline; transfers handed to other regions are not counted")
+    public int itemsMoved;
+
+    @Label("Stale Table")
+    @Description("The run used an outdated endpoint table while a fresh one is being resolved")
+    public boolean staleTable;
+}
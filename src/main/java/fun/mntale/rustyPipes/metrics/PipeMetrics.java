@@ -0,0 +1,192 @@
+/**
+ * Registry of the plugin's runtime metrics.
+ */
+package fun.mntale.rustyPipes.metrics;
+
+import fun.mntale.rustyPipes.models.PipeNetwork;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters, histograms and gauges describing what the pipe engine costs and does.
+ * Recording uses striped {@link LongAdder}s and volatile fields only, so it allocates nothing on the hot path
+ * (apart from the first item moved by a new network or world) and may be called from any region thread.
+ * Reading happens on the exporter's thread through {@link #writePrometheus(StringBuilder)}.
+ */
+public class PipeMetrics {
+    private static final long MICROS = 1_000L;
+    private static final long MILLIS = 1_000_000L;
+
+    private final Histogram tickDuration = new Histogram(
+        50 * MICROS, 100 * MICROS, 250 * MICROS, 500 * MICROS, MILLIS, 2 * MILLIS, 5 * MILLIS, 10 * MILLIS, 25 * MILLIS, 50 * MILLIS);
+    private final Histogram rebuildDuration = new Histogram(
+        MILLIS, 5 * MILLIS, 10 * MILLIS, 25 * MILLIS, 50 * MILLIS, 100 * MILLIS, 250 * MILLIS, 500 * MILLIS, 1000 * MILLIS, 5000 * MILLIS);
+    private final LongAdder rebuilds = new LongAdder();
+    private final LongAdder rebuildRequests = new LongAdder();
+    private final LongAdder rebuildsCancelled = new LongAdder();
+    private final LongAdder routeHits = new LongAdder();
+    private final LongAdder routeMisses = new LongAdder();
+    private final Map<String, LongAdder> itemsMovedByWorld = new ConcurrentHashMap<>();
+    private final Map<PipeNetwork, LongAdder> itemsMovedByNetwork = new ConcurrentHashMap<>();
+    // Sampled by the global region about once per second
+    private volatile long rebuildQueueDepth;
+    private volatile long rebuildExecutorQueued;
+    private volatile long rebuildExecutorActive;
+    private volatile long visualsInFlight;
+    private volatile long networks;
+    private volatile long sleepingNetworks;
+    private volatile long tickBacklog;
+    private volatile long transferInterval;
+
+    /**
+     * Records the time spent running networks on one server tick.
+     * @param nanos The duration in nanoseconds.
+     */
+    public void recordTick(long nanos) {
+        tickDuration.record(nanos);
+    }
+
+    /**
+     * Records items moved by a network.
+     * @param network The network.
+     * @param count The number of items moved.
+     */
+    public void recordItemsMoved(PipeNetwork network, int count) {
+        itemsMovedByWorld.computeIfAbsent(network.getWorldName(), world -> new LongAdder()).add(count);
+        itemsMovedByNetwork.computeIfAbsent(network, key -> new LongAdder()).add(count);
+    }
+
+    /**
+     * Records a request to rebuild the networks around a changed block.
+     */
+    public void recordRebuildRequest() {
+        rebuildRequests.increment();
+    }
+
+    /**
+     * Records a finished area rebuild.
+     * @param nanos The time from starting the rebuild to applying its result.
+     */
+    public void recordRebuild(long nanos) {
+        rebuilds.increment();
+        rebuildDuration.record(nanos);
+    }
+
+    /**
+     * Records an area rebuild cancelled because a newer rebuild covers its area.
+     */
+    public void recordRebuildCancelled() {
+        rebuildsCancelled.increment();
+    }
+
+    /**
+     * Records a route lookup.
+     * @param hit True if the route came from the cache.
+     */
+    public void recordRoute(boolean hit) {
+        (hit ? routeHits : routeMisses).increment();
+    }
+
+    /**
+     * Updates the sampled gauges.
+     * @param rebuildQueueDepth Area rebuilds queued or running.
+     * @param visualsInFlight Item visuals currently shown.
+     * @param networks Networks across all worlds.
+     * @param sleepingNetworks Networks asleep until something wakes them.
+     * @param tickBacklog Due networks carried over because the tick budget ran out.
+     * @param transferInterval The current transfer interval in ticks.
+     */
+    public void sample(long rebuildQueueDepth, long visualsInFlight, long networks, long sleepingNetworks,
+                       long tickBacklog, long transferInterval) {
+        this.rebuildQueueDepth = rebuildQueueDepth;
+        this.visualsInFlight = visualsInFlight;
+        this.networks = networks;
+        this.sleepingNetworks = sleepingNetworks;
+        this.tickBacklog = tickBacklog;
+        this.transferInterval = transferInterval;
+    }
+
+    /**
+     * Updates the gauges of the rebuild workers.
+     * @param queued Rebuild tasks waiting for a worker.
+     * @param active Rebuild tasks running.
+     */
+    public void sampleRebuildExecutor(long queued, long active) {
+        this.rebuildExecutorQueued = queued;
+        this.rebuildExecutorActive = active;
+    }
+
+    /**
+     * Drops the per-network counters of networks that no longer exist.
+     * @param live The networks that still exist.
+     */
+    public void retainNetworks(Set<PipeNetwork> live) {
+        itemsMovedByNetwork.keySet().retainAll(live);
+    }
+
+    /**
+     * Creates an empty identity set for {@link #retainNetworks(Set)}.
+     * @return The set.
+     */
+    public static Set<PipeNetwork> newNetworkSet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    /**
+     * Writes every metric in Prometheus text format.
+     * @param out The output.
+     */
+    public void writePrometheus(StringBuilder out) {
+        tickDuration.write(out, "rustypipes_tick_duration_seconds", "Time spent running networks per server tick.");
+        header(out, "rustypipes_items_moved_total", "Items moved between containers.", "counter");
+        for (Map.Entry<String, LongAdder> entry : itemsMovedByWorld.entrySet()) {
+            out.append("rustypipes_items_moved_total{world=\"").append(escape(entry.getKey())).append("\"} ")
+                .append(entry.getValue().sum()).append('\n');
+        }
+        header(out, "rustypipes_network_items_moved_total", "Items moved by one network; network ids are not stable across restarts.", "counter");
+        for (Map.Entry<PipeNetwork, LongAdder> entry : itemsMovedByNetwork.entrySet()) {
+            out.append("rustypipes_network_items_moved_total{world=\"").append(escape(entry.getKey().getWorldName()))
+                .append("\",network=\"").append(entry.getKey().getId()).append("\"} ").append(entry.getValue().sum()).append('\n');
+        }
+        counter(out, "rustypipes_rebuild_requests_total", "Requests to rebuild the networks around a changed block.", rebuildRequests.sum());
+        counter(out, "rustypipes_rebuilds_total", "Area rebuilds applied.", rebuilds.sum());
+        counter(out, "rustypipes_rebuilds_cancelled_total", "Area rebuilds cancelled by a newer rebuild of the same area.", rebuildsCancelled.sum());
+        rebuildDuration.write(out, "rustypipes_rebuild_duration_seconds", "Time from starting an area rebuild to applying it.");
+        counter(out, "rustypipes_route_cache_hits_total", "Route lookups answered from the cache.", routeHits.sum());
+        counter(out, "rustypipes_route_cache_misses_total", "Route lookups that had to find a path.", routeMisses.sum());
+        gauge(out, "rustypipes_rebuild_queue_depth", "Area rebuilds queued or running.", rebuildQueueDepth);
+        gauge(out, "rustypipes_rebuild_executor_queued", "Rebuild tasks waiting for a rebuild worker.", rebuildExecutorQueued);
+        gauge(out, "rustypipes_rebuild_executor_active", "Rebuild tasks running on a rebuild worker.", rebuildExecutorActive);
+        gauge(out, "rustypipes_visuals_in_flight", "Item visuals currently shown.", visualsInFlight);
+        gauge(out, "rustypipes_networks", "Networks across all worlds.", networks);
+        gauge(out, "rustypipes_networks_sleeping", "Networks asleep until something wakes them.", sleepingNetworks);
+        gauge(out, "rustypipes_tick_backlog", "Due networks carried over because the tick budget ran out.", tickBacklog);
+        gauge(out, "rustypipes_transfer_interval_ticks", "Ticks between two runs of the same network.", transferInterval);
+    }
+
+    // Writes the HELP and TYPE lines of a metric
+    private static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void counter(StringBuilder out, String name, String help, long value) {
+        header(out, name, help, "counter");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, long value) {
+        header(out, name, help, "gauge");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    // Escapes a label value
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,50 @@
+/**
+ * Flight Recorder event for an area rebuild.
+ */
+package fun.mntale.rustyPipes.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Spans one area rebuild from the section snapshot to applying the result on the global region.
+ * Begins on the thread starting the rebuild and commits on the global region thread.
+ */
+@Name("fun.mntale.rustyPipes.Rebuild")
+@Label("Pipe Network Rebuild")
+@Category({"RustyPipes"})
+@Description("Snapshot, classification and reconcile of one area of pipe networks")
+@StackTrace(false)
+public class RebuildEvent extends Event {
+    @Label("World")
+    public String world;
+
+    @Label("Min X")
+    public int minX;
+
+    @Label("Min Y")
+    public int minY;
+
+    @Label("Min Z")
+    public int minZ;
+
+    @Label("Volume")
+    @Description("Blocks inside the rebuilt area")
+    public long volume;
+
+    @Label("Nodes Found")
+    @Description("Network blocks found in the area")
+    public int nodes;
+
+    @Label("Changes")
+    @Description("Nodes added or removed by the rebuild")
+    public int changes;
+
+    @Label("Superseded")
+    @Description("A newer rebuild covered the area, so this result was dropped")
+    public boolean superseded;
+}
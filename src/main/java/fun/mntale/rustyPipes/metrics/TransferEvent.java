@@ -0,0 +1,50 @@
+/**
+ * Flight Recorder event for a slow transfer.
+ */
+package fun.mntale.rustyPipes.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Spans one output's transfer on the region owning its container. Only transfers slower than the threshold
+ * are recorded by default.
+ */
+@Name("fun.mntale.rustyPipes.Transfer")
+@Label("Pipe Transfer")
+@Category({"RustyPipes"})
+@Description("Items moved out of one output container")
+@Threshold("1 ms")
+@StackTrace(false)
+public class TransferEvent extends Event {
+    @Label("World")
+    public String world;
+
+    @Label("Network")
+    @Description("Runtime id of the network, as in the metrics")
+    public long network;
+
+    @Label("Output X")
+    public int x;
+
+    @Label("Output Y")
+    public int y;
+
+    @Label("Output Z")
+    public int z;
+
+    @Label("Ranked Inputs")
+    public int inputs;
+
+    @Label("Items Moved")
+    public int itemsMoved;
+
+    @Label("Handed Off")
+    @Description("Inputs on other regions that received items through a handoff")
+    public int handOffs;
+}
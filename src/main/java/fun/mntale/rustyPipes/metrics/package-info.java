@@ -0,0 +1,5 @@
+/**
+ * Contains the plugin's runtime metrics and their Prometheus exporter, and the Flight Recorder events
+ * that tie a slow tick to a specific network.
+ */
+package fun.mntale.rustyPipes.metrics;
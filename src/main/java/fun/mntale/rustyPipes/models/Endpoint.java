@@ -0,0 +1,122 @@
+/**
+ * Represents an endpoint of a pipe network together with the container it serves.
+ */
+package fun.mntale.rustyPipes.models;
+
+import fun.mntale.rustyPipes.core.NodeKind;
+import it.unimi.dsi.fastutil.objects.ReferenceSet;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.item.Item;
+
+/**
+ * An endpoint node resolved against the world: its attached container, redstone power, role and item filter.
+ * Instances are immutable and shared through {@link EndpointTable}.
+ */
+public class Endpoint {
+    private final BlockPos pos;
+    private final BlockPos containerPos;
+    private final int power;
+    private final NodeKind kind;
+    private final BlockPos prevPipe;
+    private final ReferenceSet<Item> filter;
+
+    /**
+     * Constructs an Endpoint.
+     * @param pos The position of the endpoint block.
+     * @param containerPos The position of the attached container.
+     * @param power The redstone power received by the endpoint.
+     * @param kind The node kind of the endpoint block.
+     * @param prevPipe The first network neighbour of the endpoint, or null if it has none.
+     * @param filter The items this endpoint is limited to; empty for any item. Must not be modified afterwards.
+     */
+    public Endpoint(BlockPos pos, BlockPos containerPos, int power, NodeKind kind, BlockPos prevPipe, ReferenceSet<Item> filter) {
+        this.pos = pos;
+        this.containerPos = containerPos;
+        this.power = power;
+        this.kind = kind;
+        this.prevPipe = prevPipe;
+        this.filter = filter;
+    }
+
+    /**
+     * Gets the position of the endpoint block.
+     * @return The endpoint position.
+     */
+    public BlockPos getPos() {
+        return pos;
+    }
+
+    /**
+     * Gets the position of the attached container.
+     * @return The container position.
+     */
+    public BlockPos getContainerPos() {
+        return containerPos;
+    }
+
+    /**
+     * Gets the redstone power received by the endpoint.
+     * @return Power level from 0 to 15.
+     */
+    public int getPower() {
+        return power;
+    }
+
+    /**
+     * Gets the node kind of the endpoint block.
+     * @return The node kind.
+     */
+    public NodeKind getKind() {
+        return kind;
+    }
+
+    /**
+     * Gets the first network neighbour of the endpoint, used as the direction of travel.
+     * @return The neighbouring pipe position, or null if the endpoint has no neighbour.
+     */
+    public BlockPos getPrevPipe() {
+        return prevPipe;
+    }
+
+    /**
+     * Gets the items this endpoint is limited to, shown in item frames on the endpoint block.
+     * @return The filter items; empty if the endpoint takes any item.
+     */
+    public ReferenceSet<Item> getFilter() {
+        return filter;
+    }
+
+    /**
+     * Checks if this endpoint is limited to the items in its filter.
+     * @return True if the endpoint has a filter.
+     */
+    public boolean isFiltered() {
+        return !filter.isEmpty();
+    }
+
+    /**
+     * Checks if this endpoint lets an item through.
+     * @param item The item.
+     * @return True if the endpoint has no filter or the item is in it.
+     */
+    public boolean accepts(Item item) {
+        return filter.isEmpty() || filter.contains(item);
+    }
+
+    /**
+     * Returns a copy of this endpoint with a different redstone power.
+     * @param newPower The new power level.
+     * @return This endpoint if the power is unchanged, otherwise a new endpoint.
+     */
+    public Endpoint withPower(int newPower) {
+        return newPower == power ? this : new Endpoint(pos, containerPos, newPower, kind, prevPipe, filter);
+    }
+
+    /**
+     * Checks if this endpoint receives items.
+     * @return True for inputs and powered copper blocks.
+     */
+    public boolean isInput() {
+        return kind == NodeKind.INPUT || (kind == NodeKind.BOTH && power > 0);
+    }
+}
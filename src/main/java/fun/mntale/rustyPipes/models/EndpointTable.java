@@ -0,0 +1,191 @@
+/**
+ * Cached endpoint classification for a pipe network.
+ */
+package fun.mntale.rustyPipes.models;
+
+import fun.mntale.rustyPipes.core.EndpointRanking;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.item.Item;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable table of the resolved inputs and outputs of a network, in tick order.
+ * Built from the world only when the network's topology or an adjacent container changes.
+ * A table built while some endpoints sat in unloaded chunks is marked incomplete; it is used as it is until
+ * those chunks load.
+ * Redstone changes derive a re-ranked copy through {@link #withPower(long, int)} instead.
+ * The items named in any input filter are collected into one set, so checking whether an input takes an item
+ * is one hash lookup plus that input's own filter, without scanning the other inputs.
+ * Every output also gets its inputs ranked once per table, so choosing a destination is a walk down that list.
+ */
+public class EndpointTable {
+    private final List<Endpoint> inputs;
+    private final List<Endpoint> outputs;
+    private final Long2ObjectOpenHashMap<Endpoint> byPos = new Long2ObjectOpenHashMap<>();
+    // Every item named in some input filter; such items are kept away from unfiltered inputs
+    private final ReferenceOpenHashSet<Item> filteredItems = new ReferenceOpenHashSet<>();
+    // Output -> every input, best first for that output
+    private final Map<Endpoint, List<Endpoint>> rankedInputs = new IdentityHashMap<>();
+    private final long topologyVersion;
+    private final boolean complete;
+
+    /**
+     * Constructs a complete EndpointTable, sorting inputs by highest power and outputs by lowest power.
+     * @param inputs The input endpoints.
+     * @param outputs The output endpoints.
+     * @param topologyVersion The network topology version the table was built against.
+     */
+    public EndpointTable(List<Endpoint> inputs, List<Endpoint> outputs, long topologyVersion) {
+        this(inputs, outputs, topologyVersion, true);
+    }
+
+    /**
+     * Constructs an EndpointTable, sorting inputs by highest power and outputs by lowest power.
+     * @param inputs The input endpoints.
+     * @param outputs The output endpoints.
+     * @param topologyVersion The network topology version the table was built against.
+     * @param complete False if some endpoints could not be resolved because their chunks were not loaded.
+     */
+    public EndpointTable(List<Endpoint> inputs, List<Endpoint> outputs, long topologyVersion, boolean complete) {
+        List<Endpoint> sortedInputs = new ArrayList<>(inputs);
+        sortedInputs.sort((a, b) -> Integer.compare(b.getPower(), a.getPower()));
+        List<Endpoint> sortedOutputs = new ArrayList<>(outputs);
+        sortedOutputs.sort(Comparator.comparingInt(Endpoint::getPower));
+        this.inputs = List.copyOf(sortedInputs);
+        this.outputs = List.copyOf(sortedOutputs);
+        this.topologyVersion = topologyVersion;
+        this.complete = complete;
+        for (Endpoint endpoint : this.inputs) {
+            byPos.put(endpoint.getPos().asLong(), endpoint);
+            if (endpoint.isFiltered()) {
+                filteredItems.addAll(endpoint.getFilter());
+            }
+        }
+        for (Endpoint output : this.outputs) {
+            rankedInputs.put(output, rank(output, this.inputs));
+        }
+        for (Endpoint endpoint : this.outputs) {
+            byPos.put(endpoint.getPos().asLong(), endpoint);
+        }
+    }
+
+    /**
+     * Gets the resolved endpoint at a position.
+     * @param pos The packed endpoint position.
+     * @return The endpoint, or null if there is none or it has no container.
+     */
+    public Endpoint getEndpoint(long pos) {
+        return byPos.get(pos);
+    }
+
+    /**
+     * Derives a table with one endpoint's power changed, re-ranking inputs and outputs.
+     * No world access is needed; a powered copper block may move between inputs and outputs.
+     * @param pos The packed endpoint position.
+     * @param power The new power level.
+     * @return This table if nothing changed, otherwise the re-ranked table.
+     */
+    public EndpointTable withPower(long pos, int power) {
+        Endpoint current = byPos.get(pos);
+        if (current == null || current.getPower() == power) return this;
+        Endpoint updated = current.withPower(power);
+        List<Endpoint> newInputs = new ArrayList<>(inputs.size() + 1);
+        List<Endpoint> newOutputs = new ArrayList<>(outputs.size() + 1);
+        // Walk the current lists rather than the hash map, so endpoints with equal power keep their order
+        for (Endpoint endpoint : inputs) {
+            route(endpoint == current ? updated : endpoint, newInputs, newOutputs);
+        }
+        for (Endpoint endpoint : outputs) {
+            route(endpoint == current ? updated : endpoint, newInputs, newOutputs);
+        }
+        return new EndpointTable(newInputs, newOutputs, topologyVersion, complete);
+    }
+
+    /**
+     * Gets the inputs, highest power first.
+     * @return Immutable list of inputs.
+     */
+    public List<Endpoint> getInputs() {
+        return inputs;
+    }
+
+    /**
+     * Gets the inputs in the order an output prefers them: highest power, then nearest, then most to the left
+     * of the output's direction of travel. Computed when the table is built, so only topology and power changes
+     * re-rank them.
+     * @param output An output of this table.
+     * @return Immutable list of every input, best first; empty if the endpoint is not an output of this table.
+     */
+    public List<Endpoint> getRankedInputs(Endpoint output) {
+        return rankedInputs.getOrDefault(output, List.of());
+    }
+
+    /**
+     * Checks if an item may be routed to an input. Items named in any input filter may only go to the inputs
+     * whose filter holds them; everything else may only go to inputs without a filter.
+     * @param input An input of this table.
+     * @param item The item to route.
+     * @return True if the input takes the item.
+     */
+    public boolean takes(Endpoint input, Item item) {
+        return filteredItems.contains(item) ? input.getFilter().contains(item) : !input.isFiltered();
+    }
+
+    /**
+     * Gets the outputs, lowest power first.
+     * @return Immutable list of outputs.
+     */
+    public List<Endpoint> getOutputs() {
+        return outputs;
+    }
+
+    /**
+     * Gets the network topology version this table was built against.
+     * @return The topology version.
+     */
+    public long getTopologyVersion() {
+        return topologyVersion;
+    }
+
+    /**
+     * Checks if every endpoint of the network was resolved when this table was built.
+     * @return False if endpoints in unloaded chunks are missing from the table.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    // Adds an endpoint to the list matching its current role
+    private static void route(Endpoint endpoint, List<Endpoint> inputs, List<Endpoint> outputs) {
+        if (endpoint.isInput()) {
+            inputs.add(endpoint);
+        } else {
+            outputs.add(endpoint);
+        }
+    }
+
+    // Ranks the inputs for one output with the engine's ranking; ties keep input order
+    private static List<Endpoint> rank(Endpoint output, List<Endpoint> inputs) {
+        long[] positions = new long[inputs.size()];
+        int[] powers = new int[inputs.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = inputs.get(i).getPos().asLong();
+            powers[i] = inputs.get(i).getPower();
+        }
+        BlockPos prevPipe = output.getPrevPipe();
+        int[] order = EndpointRanking.rank(output.getPos().asLong(),
+            prevPipe == null ? EndpointRanking.NO_DIRECTION : prevPipe.asLong(), positions, powers);
+        List<Endpoint> ranked = new ArrayList<>(order.length);
+        for (int index : order) {
+            ranked.add(inputs.get(index));
+        }
+        return List.copyOf(ranked);
+    }
+}
@@ -1,20 +1,36 @@
 /**
  * Represents a network of connected pipes and endpoints (containers).
- * Uses NMS BlockPos for better performance and consistency.
+ * Nodes are stored by packed NMS BlockPos ({@link BlockPos#asLong()}) in the engine's {@link PipeGraph}.
  */
 package fun.mntale.rustyPipes.models;
 
+import fun.mntale.rustyPipes.core.PipeGraph;
 import net.minecraft.core.BlockPos;
-import org.bukkit.block.Block;
-import java.util.HashSet;
-import java.util.Set;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Represents a network of pipes and endpoints using NMS BlockPos.
+ * A pipe graph placed in a world, with the state the plugin caches per network: the resolved endpoint table
+ * and the routes items are shown travelling along. Graph storage and path finding live in {@link PipeGraph},
+ * whose packed positions are the same as {@link BlockPos#asLong()}.
  */
-public class PipeNetwork {
-    private final Set<PipeNode> pipes = new HashSet<>();
-    private String worldName;
+public class PipeNetwork extends PipeGraph {
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+
+    private final long id = NEXT_ID.incrementAndGet();
+    private final String worldName;
+    // Written by the global region, read by region threads on Folia
+    private volatile EndpointTable endpointTable;
+    // Shared immutable paths per endpoint pair, valid for routeCacheVersion only
+    private final Map<RouteKey, List<BlockPos>> routeCache = new HashMap<>();
+    private long routeCacheVersion = -1;
+
+    // Cache key for a directed endpoint pair
+    private record RouteKey(long from, long to) {}
 
     /**
      * Constructs a PipeNetwork.
@@ -24,6 +40,14 @@ public class PipeNetwork {
         this.worldName = worldName;
     }
 
+    /**
+     * Gets the id of this network, unique while the server runs but not across restarts.
+     * @return The network id.
+     */
+    public long getId() {
+        return id;
+    }
+
     /**
      * Gets the world name of this network.
      * @return The world name.
@@ -33,44 +57,70 @@ public class PipeNetwork {
     }
 
     /**
-     * Gets the set of pipe nodes in this network.
-     * @return Set of PipeNode.
+     * Gets the node at a packed position.
+     * @param pos The packed position.
+     * @return The PipeNode, or null if the position is not in this network.
      */
-    public Set<PipeNode> getPipes() {
-        return pipes;
+    public PipeNode getNode(long pos) {
+        return hasPipeAt(pos) ? new PipeNode(pos, getNeighbourMask(pos)) : null;
     }
 
     /**
-     * Adds a pipe node to the network.
-     * @param node The PipeNode to add.
+     * Gets the cached endpoint table if it is still valid for the current topology.
+     * @return The endpoint table, or null if it must be rebuilt.
      */
-    public void addPipe(PipeNode node) {
-        pipes.add(node);
+    public EndpointTable getEndpointTable() {
+        EndpointTable table = endpointTable;
+        return table != null && table.getTopologyVersion() == getTopologyVersion() ? table : null;
     }
 
     /**
-     * Removes a pipe node from the network.
-     * @param node The PipeNode to remove.
+     * Gets the last installed endpoint table without checking it against the topology, which only the global
+     * region may read. Safe from any thread.
+     * @return The endpoint table, possibly stale, or null.
      */
-    public void removePipe(PipeNode node) {
-        pipes.remove(node);
+    public EndpointTable peekEndpointTable() {
+        return endpointTable;
     }
 
     /**
-     * Checks if this network contains a specific position.
-     * @param blockPos The position to check.
-     * @return True if the position is in this network.
+     * Stores a freshly built endpoint table.
+     * @param endpointTable The endpoint table.
      */
-    public boolean containsPosition(BlockPos blockPos) {
-        return pipes.stream().anyMatch(node -> node.getBlockPos().equals(blockPos));
+    public void setEndpointTable(EndpointTable endpointTable) {
+        this.endpointTable = endpointTable;
     }
 
     /**
-     * Gets the total number of components in this network.
-     * @return Total number of pipes.
+     * Updates the cached power of one endpoint in place and re-ranks the endpoint table.
+     * Does nothing if the table is stale, since its rebuild reads fresh power anyway.
+     * @param pos The packed endpoint position.
+     * @param power The new power level.
+     * @return True if the ranking changed.
      */
-    public int getTotalComponents() {
-        return pipes.size();
+    public boolean updateEndpointPower(long pos, int power) {
+        EndpointTable table = getEndpointTable();
+        if (table == null) return false;
+        EndpointTable updated = table.withPower(pos, power);
+        if (updated == table) return false;
+        endpointTable = updated;
+        return true;
+    }
+
+    /**
+     * Discards the cached endpoint table, e.g. after an adjacent container changed.
+     */
+    public void markEndpointsDirty() {
+        endpointTable = null;
+    }
+
+    /**
+     * Checks if this network contains a specific position.
+     * @param blockPos The position to check.
+     * @return True if the position is in this network.
+     */
+    public boolean containsPosition(BlockPos blockPos) {
+        return hasPipeAt(blockPos.asLong());
     }
 
     /**
@@ -79,6 +129,45 @@ public class PipeNetwork {
      * @return True if a pipe exists at the position.
      */
     public boolean hasPipeAt(BlockPos pos) {
-        return pipes.stream().anyMatch(node -> node.getBlockPos().equals(pos));
+        return hasPipeAt(pos.asLong());
+    }
+
+    /**
+     * Gets the pipe path between two nodes, computing it at most once per topology version.
+     * Every caller asking for the same pair gets the same immutable list.
+     * @param from The start position.
+     * @param to The end position.
+     * @return The path from start to end inclusive, or an empty list if they are not connected.
+     */
+    public List<BlockPos> getRoute(BlockPos from, BlockPos to) {
+        if (routeCacheVersion != getTopologyVersion()) {
+            routeCache.clear();
+            routeCacheVersion = getTopologyVersion();
+        }
+        return routeCache.computeIfAbsent(new RouteKey(from.asLong(), to.asLong()), key -> findPath(key.from(), key.to()));
+    }
+
+    /**
+     * Gets the number of routes currently cached.
+     * @return Cached route count.
+     */
+    public int getCachedRouteCount() {
+        return routeCacheVersion == getTopologyVersion() ? routeCache.size() : 0;
+    }
+
+    /**
+     * Finds the shortest path between two nodes (see {@link #shortestPath(long, long)}).
+     * Uncached; prefer {@link #getRoute(BlockPos, BlockPos)}.
+     * @param start The packed start position.
+     * @param end The packed end position.
+     * @return The immutable path from start to end inclusive, or an empty list if they are not connected.
+     */
+    public List<BlockPos> findPath(long start, long end) {
+        long[] packed = shortestPath(start, end);
+        List<BlockPos> path = new ArrayList<>(packed.length);
+        for (long pos : packed) {
+            path.add(BlockPos.of(pos));
+        }
+        return List.copyOf(path);
     }
-} 
\ No newline at end of file
+}
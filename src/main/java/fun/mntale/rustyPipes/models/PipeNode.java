@@ -1,37 +1,45 @@
 /**
  * Represents a single pipe block or endpoint in a pipe network.
- * Uses NMS BlockPos for better performance and consistency.
+ * A lightweight view over a packed NMS BlockPos and the node's neighbour mask.
  */
 package fun.mntale.rustyPipes.models;
 
 import net.minecraft.core.BlockPos;
 import org.bukkit.Location;
-import java.util.Objects;
+import org.bukkit.World;
 
 /**
- * Represents a pipe block in the network using NMS BlockPos.
+ * Represents a pipe block in the network by its packed NMS BlockPos.
+ * Instances are created on demand by {@link PipeNetwork#getNode(long)}; the network owns the data.
  */
 public class PipeNode {
-    private final BlockPos blockPos;
-    private final String worldName;
+    private final long packedPos;
+    private final int neighbourMask;
 
     /**
-     * Constructs a PipeNode from NMS BlockPos.
+     * Constructs a PipeNode from a packed position and neighbour mask.
+     * @param packedPos The packed NMS block position.
+     * @param neighbourMask The 6-bit neighbour mask.
+     */
+    public PipeNode(long packedPos, int neighbourMask) {
+        this.packedPos = packedPos;
+        this.neighbourMask = neighbourMask;
+    }
+
+    /**
+     * Constructs an unlinked PipeNode from NMS BlockPos.
      * @param blockPos The NMS block position.
-     * @param worldName The world name.
      */
-    public PipeNode(BlockPos blockPos, String worldName) {
-        this.blockPos = blockPos;
-        this.worldName = worldName;
+    public PipeNode(BlockPos blockPos) {
+        this(blockPos.asLong(), 0);
     }
 
     /**
-     * Constructs a PipeNode from Bukkit Location.
-     * @param location The Bukkit location.
+     * Gets the packed position of this node.
+     * @return The packed NMS block position.
      */
-    public PipeNode(Location location) {
-        this.blockPos = new BlockPos(location.getBlockX(), location.getBlockY(), location.getBlockZ());
-        this.worldName = location.getWorld().getName();
+    public long getPackedPos() {
+        return packedPos;
     }
 
     /**
@@ -39,23 +47,33 @@ public class PipeNode {
      * @return The NMS block position.
      */
     public BlockPos getBlockPos() {
-        return blockPos;
+        return BlockPos.of(packedPos);
+    }
+
+    /**
+     * Gets the neighbour mask of this node.
+     * @return The 6-bit neighbour mask (see {@link PipeNetwork#DIRECTIONS}).
+     */
+    public int getNeighbourMask() {
+        return neighbourMask;
     }
 
     /**
-     * Gets the world name of this node.
-     * @return The world name.
+     * Checks if this node has a neighbour in the given direction.
+     * @param dir The direction index.
+     * @return True if linked in that direction.
      */
-    public String getWorldName() {
-        return worldName;
+    public boolean hasNeighbour(int dir) {
+        return (neighbourMask & (1 << dir)) != 0;
     }
 
     /**
      * Gets the Bukkit Location of this node.
+     * @param world The world of the owning network.
      * @return The Bukkit location.
      */
-    public Location getLocation() {
-        return new Location(org.bukkit.Bukkit.getWorld(worldName), blockPos.getX(), blockPos.getY(), blockPos.getZ());
+    public Location getLocation(World world) {
+        return new Location(world, getX(), getY(), getZ());
     }
 
     /**
@@ -63,7 +81,7 @@ public class PipeNode {
      * @return X coordinate.
      */
     public int getX() {
-        return blockPos.getX();
+        return BlockPos.getX(packedPos);
     }
 
     /**
@@ -71,7 +89,7 @@ public class PipeNode {
      * @return Y coordinate.
      */
     public int getY() {
-        return blockPos.getY();
+        return BlockPos.getY(packedPos);
     }
 
     /**
@@ -79,24 +97,23 @@ public class PipeNode {
      * @return Z coordinate.
      */
     public int getZ() {
-        return blockPos.getZ();
+        return BlockPos.getZ(packedPos);
     }
 
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
-        PipeNode pipeNode = (PipeNode) o;
-        return blockPos.equals(pipeNode.blockPos) && worldName.equals(pipeNode.worldName);
+        return packedPos == ((PipeNode) o).packedPos;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(blockPos, worldName);
+        return Long.hashCode(packedPos);
     }
 
     @Override
     public String toString() {
-        return "PipeNode{world=" + worldName + ", pos=" + blockPos.getX() + "," + blockPos.getY() + "," + blockPos.getZ() + "}";
+        return "PipeNode{pos=" + getX() + "," + getY() + "," + getZ() + ", mask=" + Integer.toBinaryString(neighbourMask) + "}";
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,161 @@
+/**
+ * Index of the slots of a container by content, so transfers find their target slot without scanning.
+ */
+package fun.mntale.rustyPipes.utils;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntRBTreeSet;
+import it.unimi.dsi.fastutil.ints.IntSortedSet;
+import net.minecraft.world.Container;
+import net.minecraft.world.item.ItemStack;
+
+/**
+ * Tracks which slots of a container are empty, which hold a stack with room left, and which are occupied at all.
+ * Partially filled slots are grouped by {@link ItemStack#hashItemAndComponents(ItemStack)}, so finding a slot
+ * to merge into costs one hash lookup plus a component comparison against the first candidate.
+ * Slots are always handed out lowest first, matching a linear scan.
+ * The index is only a hint: every slot it returns is checked against the container. A mismatch means the
+ * container was changed behind its back; the slot is re-filed on the spot and the index reports itself invalid,
+ * so the owner rebuilds it before the next use.
+ * Must be used from the thread owning the container.
+ */
+public class ContainerSlotIndex {
+    private static final int EMPTY = 0;
+    private static final int PARTIAL = 1;
+    private static final int FULL = 2;
+
+    private final Container container;
+    private final long builtAt;
+    // Per slot: EMPTY, PARTIAL or FULL, and the content hash for PARTIAL and FULL slots
+    private final int[] state;
+    private final int[] key;
+    private final IntSortedSet free = new IntRBTreeSet();
+    private final IntSortedSet occupied = new IntRBTreeSet();
+    private final Int2ObjectOpenHashMap<IntSortedSet> partial = new Int2ObjectOpenHashMap<>();
+    private boolean stale;
+
+    private ContainerSlotIndex(Container container, long builtAt) {
+        this.container = container;
+        this.builtAt = builtAt;
+        this.state = new int[container.getContainerSize()];
+        this.key = new int[container.getContainerSize()];
+    }
+
+    /**
+     * Indexes every slot of a container.
+     * @param container The container to index.
+     * @return The index.
+     */
+    public static ContainerSlotIndex build(Container container) {
+        ContainerSlotIndex index = new ContainerSlotIndex(container, System.nanoTime());
+        for (int slot = 0; slot < index.state.length; slot++) {
+            index.add(slot, container.getItem(slot));
+        }
+        return index;
+    }
+
+    /**
+     * Checks if this index still describes the given container and is younger than a maximum age.
+     * Old indexes are rebuilt as a safety net against changes made without any event.
+     * @param container The container the caller is about to use.
+     * @param maxAgeNanos The maximum age.
+     * @return True if the index may be used.
+     */
+    public boolean isValidFor(Container container, long maxAgeNanos) {
+        return !stale && this.container == container && state.length == container.getContainerSize()
+            && System.nanoTime() - builtAt < maxAgeNanos;
+    }
+
+    /**
+     * Finds the lowest slot that can take at least one of an item: a matching stack with room, else an empty slot.
+     * @param item The item to place.
+     * @return The slot, or -1 if the container has no room for the item.
+     */
+    public int findSlot(ItemStack item) {
+        int hash = ItemStack.hashItemAndComponents(item);
+        IntSortedSet candidates;
+        search:
+        while ((candidates = partial.get(hash)) != null) {
+            IntIterator it = candidates.iterator();
+            while (it.hasNext()) {
+                int slot = it.nextInt();
+                ItemStack current = container.getItem(slot);
+                if (!current.isEmpty() && current.getCount() < maxStack(current)) {
+                    if (ItemStack.isSameItemSameComponents(current, item)) return slot;
+                    // Same hash, different item: a true collision, keep looking
+                    if (ItemStack.hashItemAndComponents(current) == hash) continue;
+                }
+                // Emptied, filled or swapped behind the index: re-file the slot, which leaves this bucket, and look again
+                stale = true;
+                update(slot);
+                continue search;
+            }
+            break;
+        }
+        while (!free.isEmpty()) {
+            int slot = free.firstInt();
+            if (container.getItem(slot).isEmpty()) return slot;
+            stale = true;
+            update(slot);
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the occupied slots in ascending order, as a copy safe to iterate while the container changes.
+     * Like {@link #findSlot(ItemStack)}, this is a hint: callers check each slot's stack before using it and
+     * {@link #update(int)} slots found empty.
+     * @return The occupied slots.
+     */
+    public int[] getOccupiedSlots() {
+        return occupied.toIntArray();
+    }
+
+    /**
+     * Re-indexes one slot after its contents changed.
+     * @param slot The slot.
+     */
+    public void update(int slot) {
+        remove(slot);
+        add(slot, container.getItem(slot));
+    }
+
+    // Adds a slot to the sets matching its contents
+    private void add(int slot, ItemStack stack) {
+        if (stack.isEmpty()) {
+            state[slot] = EMPTY;
+            free.add(slot);
+            return;
+        }
+        occupied.add(slot);
+        key[slot] = ItemStack.hashItemAndComponents(stack);
+        if (stack.getCount() < maxStack(stack)) {
+            state[slot] = PARTIAL;
+            partial.computeIfAbsent(key[slot], k -> new IntRBTreeSet()).add(slot);
+        } else {
+            state[slot] = FULL;
+        }
+    }
+
+    // Removes a slot from the sets it was added to
+    private void remove(int slot) {
+        switch (state[slot]) {
+            case EMPTY -> free.remove(slot);
+            case PARTIAL -> {
+                occupied.remove(slot);
+                IntSortedSet slots = partial.get(key[slot]);
+                if (slots != null) {
+                    slots.remove(slot);
+                    if (slots.isEmpty()) partial.remove(key[slot]);
+                }
+            }
+            default -> occupied.remove(slot);
+        }
+    }
+
+    // Largest stack of an item this container's slots accept
+    private int maxStack(ItemStack stack) {
+        return Math.min(stack.getMaxStackSize(), container.getMaxStackSize());
+    }
+}
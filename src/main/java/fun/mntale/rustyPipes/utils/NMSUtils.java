@@ -3,12 +3,18 @@
  */
 package fun.mntale.rustyPipes.utils;
 
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ReferenceSet;
+import it.unimi.dsi.fastutil.objects.ReferenceSets;
 import net.minecraft.core.BlockPos;
+import net.minecraft.world.entity.decoration.ItemFrame;
+import net.minecraft.world.item.Item;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.entity.BaseContainerBlockEntity;
 import net.minecraft.world.level.block.entity.BlockEntity;
 import org.bukkit.Material;
 import org.bukkit.World;
+import org.bukkit.block.BlockFace;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockState;
 import org.bukkit.block.data.Lightable;
@@ -138,6 +144,16 @@ public class NMSUtils {
         return blockEntity instanceof BaseContainerBlockEntity ? (BaseContainerBlockEntity) blockEntity : null;
     }
 
+    /**
+     * Checks if a block entity runs logic every server tick, so its contents may change without any event.
+     * @param blockEntity The block entity.
+     * @return True if the block has a server-side ticker.
+     */
+    public static boolean isTicking(BlockEntity blockEntity) {
+        Level level = blockEntity.getLevel();
+        return level != null && blockEntity.getBlockState().getTicker(level, blockEntity.getType()) != null;
+    }
+
     /**
      * Converts a Bukkit ItemStack to NMS ItemStack.
      * @param bukkitItem The Bukkit ItemStack.
@@ -220,47 +236,109 @@ public class NMSUtils {
     }
 
     /**
-     * Transfers up to 'amount' items from the given slot from source to dest. Returns true if any items were moved.
+     * Transfers up to 'amount' items from the given slot from source to dest.
+     * Target slots come from the destination's slot index instead of a scan over the container, and both
+     * indexes are updated for every slot changed.
+     * @param source The container to take from.
+     * @param sourceIndex The slot index of the source.
+     * @param slot The source slot.
+     * @param dest The container to insert into.
+     * @param destIndex The slot index of the destination.
+     * @param amount The maximum number of items to move.
+     * @return The number of items moved.
      */
-    public static boolean transferItem(BaseContainerBlockEntity source, BaseContainerBlockEntity dest, int slot, int amount) {
+    public static int transferItem(BaseContainerBlockEntity source, ContainerSlotIndex sourceIndex, int slot,
+                                   BaseContainerBlockEntity dest, ContainerSlotIndex destIndex, int amount) {
         net.minecraft.world.item.ItemStack sourceItem = source.getItem(slot);
-        if (sourceItem.isEmpty() || amount <= 0) return false;
+        if (sourceItem.isEmpty() || amount <= 0) return 0;
+        int maxStack = Math.min(sourceItem.getMaxStackSize(), dest.getMaxStackSize());
         int moved = 0;
-        int maxStack = sourceItem.getMaxStackSize();
-        for (int destSlot = 0; destSlot < dest.getContainerSize() && moved < amount; destSlot++) {
+        while (moved < amount && !sourceItem.isEmpty()) {
+            // Matching stacks with room come first, then empty slots
+            int destSlot = destIndex.findSlot(sourceItem);
+            if (destSlot < 0) break;
             net.minecraft.world.item.ItemStack destItem = dest.getItem(destSlot);
-            // Stack with same item
-            if (!destItem.isEmpty() && net.minecraft.world.item.ItemStack.isSameItemSameComponents(sourceItem, destItem) && destItem.getCount() < maxStack) {
-                int canMove = Math.min(amount - moved, Math.min(sourceItem.getCount(), maxStack - destItem.getCount()));
-                if (canMove > 0) {
-                    destItem.setCount(destItem.getCount() + canMove);
-                    dest.setItem(destSlot, destItem);
-                    sourceItem.setCount(sourceItem.getCount() - canMove);
-                    moved += canMove;
-                }
+            int canMove = Math.min(amount - moved, Math.min(sourceItem.getCount(), maxStack - destItem.getCount()));
+            if (canMove <= 0) break;
+            if (destItem.isEmpty()) {
+                dest.setItem(destSlot, sourceItem.copyWithCount(canMove));
+            } else {
+                destItem.grow(canMove);
+                dest.setItem(destSlot, destItem);
             }
+            destIndex.update(destSlot);
+            sourceItem.shrink(canMove);
+            moved += canMove;
         }
-        // Fill empty slots
-        for (int destSlot = 0; destSlot < dest.getContainerSize() && moved < amount; destSlot++) {
+        if (moved == 0) return 0;
+        source.setItem(slot, sourceItem.isEmpty() ? net.minecraft.world.item.ItemStack.EMPTY : sourceItem);
+        sourceIndex.update(slot);
+        source.setChanged();
+        dest.setChanged();
+        return moved;
+    }
+
+    /**
+     * Inserts a stack into a container, merging with matching stacks first and then filling empty slots.
+     * The given stack is not modified.
+     * @param dest The container to insert into.
+     * @param destIndex The slot index of the container, updated for every slot changed.
+     * @param stack The stack to insert.
+     * @return The part of the stack that did not fit; empty if everything was inserted.
+     */
+    public static net.minecraft.world.item.ItemStack insertItem(BaseContainerBlockEntity dest, ContainerSlotIndex destIndex,
+                                                                net.minecraft.world.item.ItemStack stack) {
+        net.minecraft.world.item.ItemStack remaining = stack.copy();
+        int maxStack = Math.min(remaining.getMaxStackSize(), dest.getMaxStackSize());
+        while (!remaining.isEmpty()) {
+            int destSlot = destIndex.findSlot(remaining);
+            if (destSlot < 0) break;
             net.minecraft.world.item.ItemStack destItem = dest.getItem(destSlot);
+            int canMove = Math.min(remaining.getCount(), maxStack - destItem.getCount());
+            if (canMove <= 0) break;
             if (destItem.isEmpty()) {
-                int canMove = Math.min(amount - moved, sourceItem.getCount());
-                if (canMove > 0) {
-                    net.minecraft.world.item.ItemStack toPlace = sourceItem.copy();
-                    toPlace.setCount(canMove);
-                    dest.setItem(destSlot, toPlace);
-                    sourceItem.setCount(sourceItem.getCount() - canMove);
-                    moved += canMove;
-                }
+                dest.setItem(destSlot, remaining.split(canMove));
+            } else {
+                destItem.grow(canMove);
+                dest.setItem(destSlot, destItem);
+                remaining.shrink(canMove);
             }
+            destIndex.update(destSlot);
         }
-        source.setItem(slot, sourceItem.isEmpty() ? net.minecraft.world.item.ItemStack.EMPTY : sourceItem);
-        if (moved > 0) {
-            source.setChanged();
+        if (remaining.getCount() != stack.getCount()) {
             dest.setChanged();
-            return true;
         }
-        return false;
+        return remaining;
+    }
+
+    /**
+     * Gets the item filter of an endpoint: the items shown in the item frames attached to its block.
+     * Must be called from the thread owning the block.
+     * @param world The NMS world.
+     * @param pos The endpoint position.
+     * @return The filter items; empty if no frame on the block shows an item.
+     */
+    public static ReferenceSet<Item> getFrameFilter(Level world, BlockPos pos) {
+        List<ItemFrame> frames = world.getEntitiesOfClass(ItemFrame.class, new net.minecraft.world.phys.AABB(pos).inflate(1.0));
+        if (frames.isEmpty()) return ReferenceSets.emptySet();
+        ReferenceSet<Item> filter = new ReferenceOpenHashSet<>(frames.size());
+        for (ItemFrame frame : frames) {
+            net.minecraft.world.item.ItemStack shown = frame.getItem();
+            // Only frames hanging on this block; the frame's own position is the block in front of it
+            if (shown.isEmpty() || !frame.getPos().relative(frame.getDirection().getOpposite()).equals(pos)) continue;
+            filter.add(shown.getItem());
+        }
+        return filter.isEmpty() ? ReferenceSets.emptySet() : filter;
+    }
+
+    /**
+     * Gets the block an item frame or other hanging entity is attached to.
+     * @param hanging The hanging entity.
+     * @return The block it hangs on.
+     */
+    public static Block getAttachedBlock(org.bukkit.entity.Hanging hanging) {
+        BlockFace face = hanging.getAttachedFace();
+        return hanging.getLocation().getBlock().getRelative(face);
     }
 
     /**
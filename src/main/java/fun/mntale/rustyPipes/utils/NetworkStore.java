@@ -0,0 +1,260 @@
+/**
+ * Binary on-disk store of the pipe network graph, one file per world.
+ * Lets networks come back on startup without waiting for chunk loads to rediscover them.
+ */
+package fun.mntale.rustyPipes.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads and writes per-world network files.
+ * Each network is encoded on its own as its node positions, sorted and delta-encoded as variable-length integers,
+ * and one kind ordinal per node, deflated into a blob; the file lists the blobs with their topology versions.
+ * Saves are incremental per network: the caller keeps the blobs of networks whose topology did not change and only
+ * encodes the rest, so writing a world is a plain copy of mostly cached blobs.
+ * Writes go to a temporary file that is moved over the old one, so a crash never leaves a half-written store.
+ */
+public class NetworkStore {
+    // Format 1: the whole file deflated, with this magic inside the stream
+    private static final int MAGIC = 0x52505331; // "RPS1"
+    // Format 2: a plain header followed by one deflated blob per network
+    private static final int BLOB_MAGIC = 0x52505332; // "RPS2"
+    private static final int FORMAT_VERSION = 2;
+
+    private final File directory;
+    // Per world, the lock serialising its writes and the sequence of the copy last written
+    private final Map<String, WorldFile> files = new ConcurrentHashMap<>();
+
+    // Write state of one world's file
+    private static final class WorldFile {
+        long written = Long.MIN_VALUE;
+    }
+
+    /**
+     * A network as stored on disk.
+     * @param topologyVersion The topology version of the network when it was saved.
+     * @param positions Packed node positions, sorted ascending.
+     * @param kinds Node kind ordinals, parallel to positions.
+     */
+    public record StoredNetwork(long topologyVersion, long[] positions, byte[] kinds) {}
+
+    /**
+     * A network encoded for the store, ready to be written as it is.
+     * @param topologyVersion The topology version of the network when it was encoded.
+     * @param data The deflated nodes of the network.
+     */
+    public record EncodedNetwork(long topologyVersion, byte[] data) {}
+
+    /**
+     * Constructs a NetworkStore.
+     * @param directory The directory holding one file per world.
+     */
+    public NetworkStore(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Checks if any world has a store file.
+     * @return True if the store holds at least one world.
+     */
+    public boolean isEmpty() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".bin"));
+        return files == null || files.length == 0;
+    }
+
+    /**
+     * Loads the networks saved for a world.
+     * @param worldName The world name.
+     * @return The stored networks; empty if nothing was saved or the file is unreadable.
+     */
+    public List<StoredNetwork> load(String worldName) {
+        File file = getFile(worldName);
+        if (!file.isFile()) return List.of();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != BLOB_MAGIC) return loadWholeDeflated(worldName, file);
+            if (in.readInt() != FORMAT_VERSION) {
+                DebugLogger.log("<#ff6b6b>Ignoring network store for " + worldName + ",</#ff6b6b> <gray>unknown format.</gray>");
+                return List.of();
+            }
+            int count = in.readInt();
+            List<StoredNetwork> stored = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long topologyVersion = in.readLong();
+                byte[] data = new byte[in.readInt()];
+                in.readFully(data);
+                try (DataInputStream nodes = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(data)))) {
+                    stored.add(readNodes(topologyVersion, nodes));
+                }
+            }
+            return stored;
+        } catch (IOException e) {
+            DebugLogger.log("<#ff6b6b>Failed to read network store for " + worldName + ":</#ff6b6b> <gray>" + e.getMessage() + "</gray>");
+            return List.of();
+        }
+    }
+
+    // Reads a format 1 file, written before networks were encoded separately; the next save converts it
+    private List<StoredNetwork> loadWholeDeflated(String worldName, File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new InflaterInputStream(new FileInputStream(file))))) {
+            if (in.readInt() != MAGIC || in.readInt() != 1) {
+                DebugLogger.log("<#ff6b6b>Ignoring network store for " + worldName + ",</#ff6b6b> <gray>unknown format.</gray>");
+                return List.of();
+            }
+            int count = in.readInt();
+            List<StoredNetwork> stored = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                stored.add(readNodes(in.readLong(), in));
+            }
+            return stored;
+        }
+    }
+
+    // Reads the node count, positions and kinds of one network
+    private static StoredNetwork readNodes(long topologyVersion, DataInputStream in) throws IOException {
+        int size = in.readInt();
+        long[] positions = new long[size];
+        long prev = 0;
+        for (int n = 0; n < size; n++) {
+            prev += readVarLong(in);
+            positions[n] = prev;
+        }
+        byte[] kinds = new byte[size];
+        in.readFully(kinds);
+        return new StoredNetwork(topologyVersion, positions, kinds);
+    }
+
+    /**
+     * Saves the networks of a world, replacing the previous file. Safe to call off the main thread.
+     * Saves of the same world run one at a time, so a synchronous save waits for a running async one. A copy older
+     * than the one already written is skipped, so a save that runs late never puts stale networks back on disk.
+     * @param worldName The world name.
+     * @param sequence Increases with every copy taken; orders saves of the same world.
+     * @param networks The networks to save.
+     */
+    public void save(String worldName, long sequence, List<EncodedNetwork> networks) {
+        WorldFile state = files.computeIfAbsent(worldName, w -> new WorldFile());
+        synchronized (state) {
+            if (sequence <= state.written) return;
+            if (write(worldName, networks)) {
+                state.written = sequence;
+            }
+        }
+    }
+
+    // Writes the file through a temporary file moved over the old one; returns true on success
+    private boolean write(String worldName, List<EncodedNetwork> networks) {
+        File file = getFile(worldName);
+        File temp = new File(directory, file.getName() + ".tmp");
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            DebugLogger.log("<#ff6b6b>Failed to create network store directory</#ff6b6b> <gray>" + directory + "</gray>");
+            return false;
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(BLOB_MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(networks.size());
+            for (EncodedNetwork network : networks) {
+                out.writeLong(network.topologyVersion());
+                out.writeInt(network.data().length);
+                out.write(network.data());
+            }
+        } catch (IOException e) {
+            DebugLogger.log("<#ff6b6b>Failed to write network store for " + worldName + ":</#ff6b6b> <gray>" + e.getMessage() + "</gray>");
+            return false;
+        }
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            DebugLogger.log("<#ff6b6b>Failed to replace network store for " + worldName + ":</#ff6b6b> <gray>" + e.getMessage() + "</gray>");
+            return false;
+        }
+    }
+
+    /**
+     * Encodes a network for the store. Safe to call off the main thread as long as the arrays are not modified.
+     * @param network The network, with positions sorted ascending.
+     * @return The encoded network.
+     */
+    public static EncodedNetwork encode(StoredNetwork network) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            out.writeInt(network.positions().length);
+            long prev = 0;
+            for (long pos : network.positions()) {
+                writeVarLong(out, pos - prev);
+                prev = pos;
+            }
+            out.write(network.kinds());
+        } catch (IOException e) {
+            // In-memory streams do not fail
+            throw new IllegalStateException(e);
+        }
+        return new EncodedNetwork(network.topologyVersion(), bytes.toByteArray());
+    }
+
+    /**
+     * Builds a stored network from parallel position and kind arrays, sorting both in place by position.
+     * @param topologyVersion The topology version of the network.
+     * @param positions Packed node positions.
+     * @param kinds Node kind ordinals, parallel to positions.
+     * @return The stored network.
+     */
+    public static StoredNetwork of(long topologyVersion, long[] positions, byte[] kinds) {
+        it.unimi.dsi.fastutil.Arrays.quickSort(0, positions.length,
+            (a, b) -> Long.compare(positions[a], positions[b]),
+            (a, b) -> {
+                long pos = positions[a];
+                positions[a] = positions[b];
+                positions[b] = pos;
+                byte kind = kinds[a];
+                kinds[a] = kinds[b];
+                kinds[b] = kind;
+            });
+        return new StoredNetwork(topologyVersion, positions, kinds);
+    }
+
+    // One file per world; world names are folder names, so they are already valid file names
+    private File getFile(String worldName) {
+        return new File(directory, worldName + ".bin");
+    }
+
+    // Zig-zag variable-length encoding; sorted deltas are small and non-negative
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        long v = (value << 1) ^ (value >> 63);
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (v >>> 1) ^ -(v & 1);
+            }
+        }
+        throw new IOException("Malformed variable-length integer");
+    }
+}
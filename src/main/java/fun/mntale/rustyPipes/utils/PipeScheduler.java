@@ -0,0 +1,169 @@
+/**
+ * Scheduling facade over Paper's region-aware schedulers.
+ * The same calls run on the main thread on Paper and on the owning region thread on Folia.
+ */
+package fun.mntale.rustyPipes.utils;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Schedules plugin work on the thread that owns the data it touches.
+ * Global work (network topology, visuals bookkeeping) runs on the global region; block and container
+ * access runs on the region owning the block; file I/O runs async.
+ */
+public class PipeScheduler {
+    private static final boolean FOLIA = hasClass("io.papermc.paper.threadedregions.RegionizedServer");
+
+    private final Plugin plugin;
+
+    /**
+     * Constructs a PipeScheduler.
+     * @param plugin The owning plugin.
+     */
+    public PipeScheduler(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Checks if the server runs regions on separate threads.
+     * @return True on Folia.
+     */
+    public static boolean isFolia() {
+        return FOLIA;
+    }
+
+    /**
+     * Runs a task on the global region, immediately if already on it.
+     * @param task The task.
+     */
+    public void runGlobal(Runnable task) {
+        if (Bukkit.isGlobalTickThread()) {
+            task.run();
+        } else {
+            Bukkit.getGlobalRegionScheduler().execute(plugin, task);
+        }
+    }
+
+    /**
+     * Runs a task on the global region every period.
+     * @param task The task.
+     * @param delay Ticks before the first run (at least 1).
+     * @param period Ticks between runs.
+     * @return The scheduled task.
+     */
+    public ScheduledTask runGlobalTimer(Runnable task, long delay, long period) {
+        return Bukkit.getGlobalRegionScheduler().runAtFixedRate(plugin, t -> task.run(), Math.max(1, delay), period);
+    }
+
+    /**
+     * Runs a task on the region owning a block, immediately if already on it.
+     * @param world The world of the block.
+     * @param x The block X coordinate.
+     * @param z The block Z coordinate.
+     * @param task The task.
+     */
+    public void runAt(World world, int x, int z, Runnable task) {
+        if (Bukkit.isOwnedByCurrentRegion(world, x >> 4, z >> 4)) {
+            task.run();
+        } else {
+            Bukkit.getRegionScheduler().execute(plugin, world, x >> 4, z >> 4, task);
+        }
+    }
+
+    /**
+     * Runs a task on the region owning a location, immediately if already on it.
+     * @param location The location.
+     * @param task The task.
+     */
+    public void runAt(Location location, Runnable task) {
+        runAt(location.getWorld(), location.getBlockX(), location.getBlockZ(), task);
+    }
+
+    /**
+     * Runs a task on the region owning a block after a delay.
+     * @param world The world of the block.
+     * @param x The block X coordinate.
+     * @param z The block Z coordinate.
+     * @param task The task.
+     * @param delay The delay in ticks; at least 1.
+     */
+    public void runAtLater(World world, int x, int z, Runnable task, long delay) {
+        Bukkit.getRegionScheduler().runDelayed(plugin, world, x >> 4, z >> 4, t -> task.run(), Math.max(1, delay));
+    }
+
+    /**
+     * Checks if the current thread owns a block.
+     * @param world The world of the block.
+     * @param x The block X coordinate.
+     * @param z The block Z coordinate.
+     * @return True if the block may be read and written from this thread.
+     */
+    public boolean owns(World world, int x, int z) {
+        return Bukkit.isOwnedByCurrentRegion(world, x >> 4, z >> 4);
+    }
+
+    /**
+     * Runs a task off the server threads.
+     * @param task The task.
+     */
+    public void runAsync(Runnable task) {
+        Bukkit.getAsyncScheduler().runNow(plugin, t -> task.run());
+    }
+
+    /**
+     * Runs a task off the server threads every period.
+     * @param task The task.
+     * @param delay Time before the first run.
+     * @param period Time between runs.
+     * @param unit The unit of delay and period.
+     * @return The scheduled task.
+     */
+    public ScheduledTask runAsyncTimer(Runnable task, long delay, long period, TimeUnit unit) {
+        return Bukkit.getAsyncScheduler().runAtFixedRate(plugin, t -> task.run(), delay, period, unit);
+    }
+
+    /**
+     * Runs a task once on the thread owning an entity.
+     * @param entity The entity.
+     * @param task The task.
+     * @param retired Runs instead of the task if the entity is removed or unloaded first.
+     */
+    public void runAt(Entity entity, Runnable task, Runnable retired) {
+        if (entity.getScheduler().run(plugin, t -> task.run(), retired) == null) {
+            retired.run();
+        }
+    }
+
+    /**
+     * Runs a task on the thread owning an entity every period until the task cancels itself or the entity is removed.
+     * @param entity The entity.
+     * @param task The task; receives its own handle for cancelling.
+     * @param retired Runs instead of the task once the entity is removed or unloaded, including before the first run.
+     * @param delay Ticks before the first run (at least 1).
+     * @param period Ticks between runs.
+     */
+    public void runEntityTimer(Entity entity, Consumer<ScheduledTask> task, Runnable retired, long delay, long period) {
+        if (entity.getScheduler().runAtFixedRate(plugin, task, retired, Math.max(1, delay), period) == null) {
+            // Already removed: the scheduler never calls retired for tasks it refused
+            retired.run();
+        }
+    }
+
+    // True if a class is present on the server class path
+    private static boolean hasClass(String name) {
+        try {
+            Class.forName(name);
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/**
+ * Typed view of the plugin configuration (config.yml).
+ */
+package fun.mntale.rustyPipes.utils;
+
+import org.bukkit.configuration.file.FileConfiguration;
+
+/**
+ * Immutable settings read from config.yml when the plugin enables.
+ */
+public class PipeSettings {
+    /**
+     * How items moving through pipes are shown to players.
+     */
+    public enum VisualMode {
+        /** Client-side display entities sent as packets; nothing is spawned on the server. */
+        PACKET,
+        /** Real ItemDisplay entities spawned in the world. */
+        ENTITY,
+        /** No visuals at all. */
+        NONE
+    }
+
+    private final VisualMode visualMode;
+    private final int visualViewRange;
+    private final boolean aggregateStacks;
+    private final int maxVisuals;
+    private final int maxVisualsPerPlayer;
+    private final int saveIntervalSeconds;
+    private final boolean scanOnFirstStart;
+    private final int scanThreads;
+    private final int rebuildThreads;
+    private final boolean rebuildVirtualThreads;
+    private final int transferInterval;
+    private final int maxTransferInterval;
+    private final long tickBudgetNanos;
+    private final double loadThresholdMspt;
+    private final int sleepHeartbeat;
+    private final int metricsHttpPort;
+    private final int metricsFileInterval;
+
+    private PipeSettings(FileConfiguration config) {
+        this.visualMode = parseEnum(VisualMode.class, config.getString("visuals.mode"), VisualMode.PACKET);
+        this.visualViewRange = Math.max(1, config.getInt("visuals.view-range", 48));
+        this.aggregateStacks = config.getBoolean("visuals.aggregate-stacks", true);
+        this.maxVisuals = Math.max(0, config.getInt("visuals.max-visuals", 512));
+        this.maxVisualsPerPlayer = Math.max(0, config.getInt("visuals.max-visuals-per-player", 64));
+        this.saveIntervalSeconds = Math.max(1, config.getInt("storage.save-interval", 60));
+        this.scanOnFirstStart = config.getBoolean("storage.scan-on-first-start", true);
+        int threads = config.getInt("storage.scan-threads", 0);
+        this.scanThreads = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        int rebuild = config.getInt("storage.rebuild-threads", 0);
+        this.rebuildThreads = rebuild > 0 ? rebuild : Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+        this.rebuildVirtualThreads = config.getBoolean("storage.rebuild-virtual-threads", false);
+        this.transferInterval = Math.max(1, config.getInt("ticking.interval", 20));
+        this.maxTransferInterval = Math.max(transferInterval, config.getInt("ticking.max-interval", 100));
+        this.tickBudgetNanos = (long) (Math.max(0.05, config.getDouble("ticking.budget-ms", 2.0)) * 1_000_000L);
+        this.loadThresholdMspt = Math.max(1.0, config.getDouble("ticking.load-mspt", 40.0));
+        this.sleepHeartbeat = Math.max(1, config.getInt("ticking.sleep-heartbeat", 1200));
+        this.metricsHttpPort = Math.max(0, config.getInt("metrics.http-port", 0));
+        this.metricsFileInterval = Math.max(0, config.getInt("metrics.file-interval", 0));
+    }
+
+    /**
+     * Reads the settings from a loaded configuration.
+     * @param config The plugin configuration.
+     * @return The settings.
+     */
+    public static PipeSettings load(FileConfiguration config) {
+        return new PipeSettings(config);
+    }
+
+    /**
+     * Gets the visual mode.
+     * @return The visual mode.
+     */
+    public VisualMode getVisualMode() {
+        return visualMode;
+    }
+
+    /**
+     * Gets the distance in blocks within which players receive pipe visuals.
+     * @return The view range in blocks.
+     */
+    public int getVisualViewRange() {
+        return visualViewRange;
+    }
+
+    /**
+     * Checks if items moved together are drawn as one stack visual.
+     * @return True to aggregate.
+     */
+    public boolean isAggregateStacks() {
+        return aggregateStacks;
+    }
+
+    /**
+     * Gets the global cap on visuals in flight.
+     * @return Maximum visuals in flight.
+     */
+    public int getMaxVisuals() {
+        return maxVisuals;
+    }
+
+    /**
+     * Gets the cap on visuals in flight shown to a single player.
+     * @return Maximum visuals per player.
+     */
+    public int getMaxVisualsPerPlayer() {
+        return maxVisualsPerPlayer;
+    }
+
+    /**
+     * Gets the interval between saves of changed networks.
+     * @return The save interval in seconds.
+     */
+    public int getSaveIntervalSeconds() {
+        return saveIntervalSeconds;
+    }
+
+    /**
+     * Checks if all worlds are scanned from their region files when no networks were saved yet.
+     * @return True to scan on the first start.
+     */
+    public boolean isScanOnFirstStart() {
+        return scanOnFirstStart;
+    }
+
+    /**
+     * Gets the number of worker threads used to read region files.
+     * @return The scan thread count.
+     */
+    public int getScanThreads() {
+        return scanThreads;
+    }
+
+    /**
+     * Gets the number of workers classifying area rebuilds.
+     * @return The rebuild thread count.
+     */
+    public int getRebuildThreads() {
+        return rebuildThreads;
+    }
+
+    /**
+     * Checks if the rebuild workers run on virtual threads.
+     * @return True for virtual threads.
+     */
+    public boolean isRebuildVirtualThreads() {
+        return rebuildVirtualThreads;
+    }
+
+    /**
+     * Gets the number of ticks between two runs of the same network when the server is not under load.
+     * @return The transfer interval in ticks.
+     */
+    public int getTransferInterval() {
+        return transferInterval;
+    }
+
+    /**
+     * Gets the longest the transfer interval may be stretched to under load.
+     * @return The maximum transfer interval in ticks.
+     */
+    public int getMaxTransferInterval() {
+        return maxTransferInterval;
+    }
+
+    /**
+     * Gets the time networks may take per server tick; leftover networks run on the next tick.
+     * @return The per-tick budget in nanoseconds.
+     */
+    public long getTickBudgetNanos() {
+        return tickBudgetNanos;
+    }
+
+    /**
+     * Gets the average tick time above which the transfer interval is stretched.
+     * @return The load threshold in milliseconds per tick.
+     */
+    public double getLoadThresholdMspt() {
+        return loadThresholdMspt;
+    }
+
+    /**
+     * Gets the ticks after which a sleeping network runs once anyway, in case a change was missed.
+     * @return The heartbeat in ticks.
+     */
+    public int getSleepHeartbeat() {
+        return sleepHeartbeat;
+    }
+
+    /**
+     * Gets the local port serving metrics in Prometheus format.
+     * @return The port, or 0 if the endpoint is off.
+     */
+    public int getMetricsHttpPort() {
+        return metricsHttpPort;
+    }
+
+    /**
+     * Gets the seconds between writes of the metrics file.
+     * @return The interval in seconds, or 0 if the file is off.
+     */
+    public int getMetricsFileInterval() {
+        return metricsFileInterval;
+    }
+
+    // Parses an enum constant case-insensitively, falling back to a default for missing or unknown values
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String value, E fallback) {
+        if (value == null) return fallback;
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase(java.util.Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            DebugLogger.log("<#ff6b6b>Unknown value '" + value + "' for " + type.getSimpleName() + ",</#ff6b6b> <gray>using " + fallback + ".</gray>");
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * Dedicated worker pool for the off-thread part of network rebuilds.
+ */
+package fun.mntale.rustyPipes.utils;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs rebuild work on a fixed number of workers, so a burst of block changes queues up instead of occupying
+ * every async thread of the server. Workers are platform daemon threads or, if configured, virtual threads.
+ * Tasks cancelled before a worker picks them up are removed from the queue; running tasks are expected to
+ * check their own cancellation flag, since they are never interrupted.
+ */
+public class RebuildExecutor {
+    private final ThreadPoolExecutor pool;
+
+    /**
+     * Constructs a RebuildExecutor.
+     * @param threads The number of workers.
+     * @param virtualThreads True to run the workers on virtual threads.
+     */
+    public RebuildExecutor(int threads, boolean virtualThreads) {
+        int workers = Math.max(1, threads);
+        pool = new ThreadPoolExecutor(workers, workers, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            virtualThreads ? Thread.ofVirtual().name("RustyPipes-Rebuild-", 0).factory() : platformThreads());
+        // Idle workers are not kept around between bursts
+        pool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Queues a task.
+     * @param task The task.
+     * @return The handle for cancelling it.
+     */
+    public Future<?> submit(Runnable task) {
+        return pool.submit(task);
+    }
+
+    /**
+     * Cancels a queued task and drops it from the queue; a task already running finishes on its own.
+     * @param task The handle returned by {@link #submit(Runnable)}.
+     */
+    public void cancel(Future<?> task) {
+        if (task.cancel(false)) {
+            pool.purge();
+        }
+    }
+
+    /**
+     * Gets the number of tasks waiting for a worker.
+     * @return The queue depth.
+     */
+    public int getQueueDepth() {
+        return pool.getQueue().size();
+    }
+
+    /**
+     * Gets the number of tasks currently running.
+     * @return The running task count.
+     */
+    public int getActiveCount() {
+        return pool.getActiveCount();
+    }
+
+    /**
+     * Stops the workers, dropping queued tasks.
+     */
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    // Daemon platform threads named after the pool
+    private static ThreadFactory platformThreads() {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "RustyPipes-Rebuild-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,265 @@
+/**
+ * Offline reader of region files (.mca) that finds pipe networks without loading chunks into the server.
+ */
+package fun.mntale.rustyPipes.utils;
+
+import fun.mntale.rustyPipes.core.NodeKind;
+import fun.mntale.rustyPipes.models.PipeNetwork;
+import it.unimi.dsi.fastutil.bytes.ByteArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ByteOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.jpountz.lz4.LZ4BlockInputStream;
+import net.minecraft.core.BlockPos;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.NbtIo;
+import org.bukkit.Material;
+import org.bukkit.World;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Scans every region file of a world on a pool of worker threads.
+ * Section palettes are checked before any block data is decoded, so sections without copper cost one palette lookup.
+ * The network blocks found in all regions are then flood-filled into connected networks, across chunk and region borders.
+ * Reads only what is on disk; chunks with unsaved changes must be checked against the live world afterwards.
+ */
+public class RegionScanner {
+    private static final int SECTOR_BYTES = 4096;
+    private static final byte NOT_NETWORK = -1;
+
+    /**
+     * Receives progress while regions are scanned. Called from worker threads.
+     */
+    @FunctionalInterface
+    public interface Progress {
+        /**
+         * Reports that another region file was scanned.
+         * @param scanned The number of region files scanned so far.
+         * @param total The total number of region files.
+         * @param nodes The number of network blocks found so far.
+         */
+        void report(int scanned, int total, int nodes);
+    }
+
+    private final Function<Material, NodeKind> classifier;
+    private final int threads;
+    // Block name -> kind ordinal, or NOT_NETWORK; shared by all workers
+    private final Map<String, Byte> kindByName = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a RegionScanner.
+     * @param classifier Maps a block material to its node kind, or null if it is not a network block.
+     * @param threads The number of worker threads.
+     */
+    public RegionScanner(Function<Material, NodeKind> classifier, int threads) {
+        this.classifier = classifier;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Gets the region folder of a world.
+     * @param world The world.
+     * @return The folder holding its .mca files.
+     */
+    public static File getRegionFolder(World world) {
+        File folder = world.getWorldFolder();
+        return switch (world.getEnvironment()) {
+            case NETHER -> new File(folder, "DIM-1/region");
+            case THE_END -> new File(folder, "DIM1/region");
+            default -> new File(folder, "region");
+        };
+    }
+
+    /**
+     * Scans all region files in a folder and groups the network blocks found into connected networks.
+     * Blocks the calling thread until done; call it off the main thread.
+     * @param regionFolder The folder holding the .mca files.
+     * @param progress Receives progress after each region file.
+     * @return The networks found, as store records with topology version 0.
+     */
+    public List<NetworkStore.StoredNetwork> scan(File regionFolder, Progress progress) {
+        File[] files = regionFolder.listFiles((dir, name) -> name.startsWith("r.") && name.endsWith(".mca"));
+        if (files == null || files.length == 0) return List.of();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, files.length), runnable -> {
+            Thread thread = new Thread(runnable, "RustyPipes-RegionScanner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger scanned = new AtomicInteger();
+        AtomicInteger nodes = new AtomicInteger();
+        List<Future<Long2ByteOpenHashMap>> results = new ArrayList<>(files.length);
+        try {
+            for (File file : files) {
+                results.add(pool.submit(() -> {
+                    Long2ByteOpenHashMap found = scanRegion(file);
+                    progress.report(scanned.incrementAndGet(), files.length, nodes.addAndGet(found.size()));
+                    return found;
+                }));
+            }
+            Long2ByteOpenHashMap all = new Long2ByteOpenHashMap(nodes.get());
+            all.defaultReturnValue(NOT_NETWORK);
+            for (Future<Long2ByteOpenHashMap> result : results) {
+                all.putAll(result.get());
+            }
+            return group(all);
+        } catch (Exception e) {
+            DebugLogger.log("<#ff6b6b>Region scan failed:</#ff6b6b> <gray>" + e.getMessage() + "</gray>");
+            return List.of();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Reads every chunk of one region file; unreadable chunks are skipped
+    private Long2ByteOpenHashMap scanRegion(File file) throws IOException {
+        Long2ByteOpenHashMap found = new Long2ByteOpenHashMap();
+        try (RandomAccessFile region = new RandomAccessFile(file, "r")) {
+            if (region.length() < SECTOR_BYTES) return found;
+            int[] locations = new int[1024];
+            for (int i = 0; i < locations.length; i++) {
+                locations[i] = region.readInt();
+            }
+            for (int i = 0; i < locations.length; i++) {
+                int sectorOffset = locations[i] >>> 8;
+                if (sectorOffset == 0) continue;
+                try {
+                    CompoundTag chunk = readChunk(region, file, sectorOffset, i);
+                    if (chunk != null) {
+                        scanChunk(chunk, found);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    DebugLogger.log("<#ff6b6b>Skipping unreadable chunk " + i + " in " + file.getName() + ":</#ff6b6b> <gray>" + e.getMessage() + "</gray>");
+                }
+            }
+        }
+        return found;
+    }
+
+    // Reads and decompresses one chunk; chunks too large for the region are kept in a .mcc file next to it
+    private static CompoundTag readChunk(RandomAccessFile region, File file, int sectorOffset, int index) throws IOException {
+        region.seek((long) sectorOffset * SECTOR_BYTES);
+        int length = region.readInt();
+        if (length <= 1 || length > 256 * SECTOR_BYTES) return null;
+        int compression = region.readByte();
+        InputStream raw;
+        if ((compression & 0x80) != 0) {
+            compression &= 0x7F;
+            String[] name = file.getName().split("\\.");
+            int chunkX = Integer.parseInt(name[1]) * 32 + (index & 31);
+            int chunkZ = Integer.parseInt(name[2]) * 32 + (index >> 5);
+            raw = new FileInputStream(new File(file.getParentFile(), "c." + chunkX + "." + chunkZ + ".mcc"));
+        } else {
+            byte[] data = new byte[length - 1];
+            region.readFully(data);
+            raw = new ByteArrayInputStream(data);
+        }
+        InputStream in = switch (compression) {
+            case 1 -> new GZIPInputStream(raw);
+            case 2 -> new InflaterInputStream(raw);
+            case 3 -> raw;
+            case 4 -> new LZ4BlockInputStream(raw);
+            default -> null;
+        };
+        if (in == null) {
+            raw.close();
+            return null;
+        }
+        try (DataInputStream data = new DataInputStream(new BufferedInputStream(in))) {
+            return NbtIo.read(data);
+        }
+    }
+
+    // Collects the network blocks of one chunk, decoding only sections whose palette holds a network block
+    private void scanChunk(CompoundTag chunk, Long2ByteOpenHashMap found) {
+        int baseX = chunk.getIntOr("xPos", 0) << 4;
+        int baseZ = chunk.getIntOr("zPos", 0) << 4;
+        ListTag sections = chunk.getListOrEmpty("sections");
+        for (int s = 0; s < sections.size(); s++) {
+            CompoundTag section = sections.getCompoundOrEmpty(s);
+            CompoundTag states = section.getCompoundOrEmpty("block_states");
+            ListTag palette = states.getListOrEmpty("palette");
+            if (palette.isEmpty()) continue;
+            byte[] kinds = new byte[palette.size()];
+            boolean any = false;
+            for (int p = 0; p < kinds.length; p++) {
+                kinds[p] = classify(palette.getCompoundOrEmpty(p).getStringOr("Name", ""));
+                any |= kinds[p] != NOT_NETWORK;
+            }
+            if (!any) continue;
+            int baseY = section.getByteOr("Y", (byte) 0) << 4;
+            long[] data = states.getLongArray("data").orElse(null);
+            if (data == null) {
+                // Single-entry palette: the whole section is that block
+                for (int i = 0; i < 4096; i++) {
+                    found.put(BlockPos.asLong(baseX + (i & 15), baseY + (i >> 8), baseZ + ((i >> 4) & 15)), kinds[0]);
+                }
+                continue;
+            }
+            int bits = Math.max(4, 32 - Integer.numberOfLeadingZeros(kinds.length - 1));
+            int perLong = 64 / bits;
+            long mask = (1L << bits) - 1;
+            for (int i = 0; i < 4096; i++) {
+                int word = i / perLong;
+                if (word >= data.length) break;
+                int entry = (int) ((data[word] >>> ((i % perLong) * bits)) & mask);
+                if (entry >= kinds.length || kinds[entry] == NOT_NETWORK) continue;
+                found.put(BlockPos.asLong(baseX + (i & 15), baseY + (i >> 8), baseZ + ((i >> 4) & 15)), kinds[entry]);
+            }
+        }
+    }
+
+    // Classifies a namespaced block name once per scanner
+    private byte classify(String name) {
+        return kindByName.computeIfAbsent(name, key -> {
+            Material material = Material.matchMaterial(key);
+            NodeKind kind = material == null ? null : classifier.apply(material);
+            return kind == null ? NOT_NETWORK : (byte) kind.ordinal();
+        });
+    }
+
+    // Flood-fills the found blocks into connected networks
+    private static List<NetworkStore.StoredNetwork> group(Long2ByteOpenHashMap all) {
+        List<NetworkStore.StoredNetwork> networks = new ArrayList<>();
+        LongArrayFIFOQueue queue = new LongArrayFIFOQueue();
+        for (long start : all.keySet().toLongArray()) {
+            byte startKind = all.remove(start);
+            if (startKind == NOT_NETWORK) continue;
+            LongArrayList positions = LongArrayList.of(start);
+            ByteArrayList kinds = ByteArrayList.of(startKind);
+            queue.enqueue(start);
+            while (!queue.isEmpty()) {
+                long curr = queue.dequeueLong();
+                for (int dir = 0; dir < 6; dir++) {
+                    long adj = PipeNetwork.neighbour(curr, dir);
+                    byte kind = all.remove(adj);
+                    if (kind == NOT_NETWORK) continue;
+                    positions.add(adj);
+                    kinds.add(kind);
+                    queue.enqueue(adj);
+                }
+            }
+            networks.add(NetworkStore.of(0, positions.toLongArray(), kinds.toByteArray()));
+        }
+        return networks;
+    }
+}
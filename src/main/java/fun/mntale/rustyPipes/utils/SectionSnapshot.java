@@ -0,0 +1,232 @@
+/**
+ * Copy of the chunk sections covering a box of blocks, for classification off the main thread.
+ * Sections whose palette cannot contain a relevant block state are recorded as covered but never copied.
+ */
+package fun.mntale.rustyPipes.utils;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.chunk.PalettedContainer;
+import org.bukkit.World;
+import org.bukkit.craftbukkit.CraftWorld;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Snapshot of the block palettes in a box, read from any thread.
+ * Chunks are captured on the threads owning them; on Folia a box spanning several regions is captured in parts,
+ * one per region, which are then joined.
+ */
+public class SectionSnapshot {
+    private final BlockPos min;
+    private final BlockPos max;
+    private final LongSet coveredSections = new LongOpenHashSet();
+    private final List<Section> sections = new ArrayList<>();
+
+    // A copied section, addressed by section coordinates
+    private record Section(int x, int y, int z, PalettedContainer<BlockState> states) {}
+
+    private SectionSnapshot(BlockPos min, BlockPos max) {
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * Captures the loaded sections of some chunks that intersect a box. Must be called on the thread owning those chunks.
+     * Only sections whose palette may contain a state matching the filter are copied; the rest cost
+     * a palette check and nothing else. Unloaded chunks are left uncovered and never loaded.
+     * @param world The world to capture from.
+     * @param min The minimum corner of the box (inclusive).
+     * @param max The maximum corner of the box (inclusive).
+     * @param chunks The packed positions ({@link ChunkPos#asLong(int, int)}) of the chunks to capture.
+     * @param relevant Filter for the block states of interest.
+     * @return The snapshot of those chunks.
+     */
+    public static SectionSnapshot capture(World world, BlockPos min, BlockPos max, LongList chunks, Predicate<BlockState> relevant) {
+        ServerLevel level = ((CraftWorld) world).getHandle();
+        SectionSnapshot snapshot = new SectionSnapshot(min, max);
+        for (int i = 0; i < chunks.size(); i++) {
+            long chunkPos = chunks.getLong(i);
+            LevelChunk chunk = level.getChunkIfLoaded(ChunkPos.getX(chunkPos), ChunkPos.getZ(chunkPos));
+            if (chunk == null) continue;
+            snapshot.captureChunk(level, chunk, relevant);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Joins snapshots of disjoint chunks of the same box into one.
+     * @param min The minimum corner of the box (inclusive).
+     * @param max The maximum corner of the box (inclusive).
+     * @param parts The captured parts; their threads must have handed them over safely.
+     * @return The snapshot covering every part.
+     */
+    public static SectionSnapshot join(BlockPos min, BlockPos max, Collection<SectionSnapshot> parts) {
+        SectionSnapshot snapshot = new SectionSnapshot(min, max);
+        for (SectionSnapshot part : parts) {
+            snapshot.coveredSections.addAll(part.coveredSections);
+            snapshot.sections.addAll(part.sections);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Builds a snapshot from block palettes that are not attached to a world, such as synthetic data.
+     * Applies the same palette check as {@link #capture}: every given section is covered, but only those whose
+     * palette may contain a matching state are copied. Safe from any thread.
+     * @param min The minimum corner of the box (inclusive).
+     * @param max The maximum corner of the box (inclusive).
+     * @param states Packed section position ({@link SectionPos#asLong(int, int, int)}) to the section's block states.
+     * @param relevant Filter for the block states of interest.
+     * @return The snapshot.
+     */
+    public static SectionSnapshot of(BlockPos min, BlockPos max, Long2ObjectMap<PalettedContainer<BlockState>> states,
+                                     Predicate<BlockState> relevant) {
+        SectionSnapshot snapshot = new SectionSnapshot(min, max);
+        for (Long2ObjectMap.Entry<PalettedContainer<BlockState>> entry : Long2ObjectMaps.fastIterable(states)) {
+            long section = entry.getLongKey();
+            snapshot.addSection(SectionPos.x(section), SectionPos.y(section), SectionPos.z(section), entry.getValue(), relevant);
+        }
+        return snapshot;
+    }
+
+    // Copies the sections of one chunk that fall inside the box
+    private void captureChunk(ServerLevel level, LevelChunk chunk, Predicate<BlockState> relevant) {
+        LevelChunkSection[] chunkSections = chunk.getSections();
+        int cx = chunk.getPos().x;
+        int cz = chunk.getPos().z;
+        for (int sy = SectionPos.blockToSectionCoord(min.getY()); sy <= SectionPos.blockToSectionCoord(max.getY()); sy++) {
+            int index = level.getSectionIndexFromSectionY(sy);
+            if (index < 0 || index >= chunkSections.length) continue;
+            LevelChunkSection section = chunkSections[index];
+            if (section.hasOnlyAir()) {
+                coveredSections.add(SectionPos.asLong(cx, sy, cz));
+                continue;
+            }
+            addSection(cx, sy, cz, section.getStates(), relevant);
+        }
+    }
+
+    // Covers a section and copies its states if the palette may hold a relevant one
+    private void addSection(int sx, int sy, int sz, PalettedContainer<BlockState> states, Predicate<BlockState> relevant) {
+        coveredSections.add(SectionPos.asLong(sx, sy, sz));
+        if (!states.maybeHas(relevant)) return;
+        sections.add(new Section(sx, sy, sz, states.copy()));
+    }
+
+    /**
+     * Finds, per section of a loaded chunk, the first block whose state matches the filter.
+     * Sections that are empty or whose palette holds no matching state are skipped without reading a block,
+     * so chunks without relevant blocks cost one palette check per section. Must be called on the thread owning the chunk.
+     * @param world The world of the chunk.
+     * @param chunkX The chunk X coordinate.
+     * @param chunkZ The chunk Z coordinate.
+     * @param relevant Filter for the block states of interest.
+     * @return One matching position per section that contains a match; empty if the chunk is not loaded.
+     */
+    public static List<BlockPos> findPerSection(World world, int chunkX, int chunkZ, Predicate<BlockState> relevant) {
+        ServerLevel level = ((CraftWorld) world).getHandle();
+        LevelChunk chunk = level.getChunkIfLoaded(chunkX, chunkZ);
+        if (chunk == null) return List.of();
+        List<BlockPos> hits = new ArrayList<>();
+        LevelChunkSection[] chunkSections = chunk.getSections();
+        for (int index = 0; index < chunkSections.length; index++) {
+            LevelChunkSection section = chunkSections[index];
+            if (section.hasOnlyAir() || !section.maybeHas(relevant)) continue;
+            BlockPos hit = findInSection(section, chunkX, level.getSectionYFromSectionIndex(index), chunkZ, relevant);
+            if (hit != null) hits.add(hit);
+        }
+        return hits;
+    }
+
+    // Scans one section for the first matching state; only reached when the palette says a match is possible
+    private static BlockPos findInSection(LevelChunkSection section, int sx, int sy, int sz, Predicate<BlockState> relevant) {
+        for (int y = 0; y < 16; y++) {
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    if (relevant.test(section.getBlockState(x, y, z))) {
+                        return new BlockPos(SectionPos.sectionToBlockCoord(sx) + x, SectionPos.sectionToBlockCoord(sy) + y, SectionPos.sectionToBlockCoord(sz) + z);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Collects the positions inside the box whose block state matches the filter.
+     * Safe to call off the main thread.
+     * @param relevant Filter for the block states of interest.
+     * @return Matching block states keyed by packed position ({@link BlockPos#asLong()}).
+     */
+    public Long2ObjectMap<BlockState> collect(Predicate<BlockState> relevant) {
+        return collect(relevant, () -> false);
+    }
+
+    /**
+     * Collects the positions inside the box whose block state matches the filter, giving up between sections
+     * once cancelled.
+     * Safe to call off the main thread.
+     * @param relevant Filter for the block states of interest.
+     * @param cancelled Checked before each copied section.
+     * @return Matching block states keyed by packed position, or null if cancelled.
+     */
+    public Long2ObjectMap<BlockState> collect(Predicate<BlockState> relevant, BooleanSupplier cancelled) {
+        Long2ObjectMap<BlockState> found = new Long2ObjectOpenHashMap<>();
+        for (Section section : sections) {
+            if (cancelled.getAsBoolean()) return null;
+            int baseX = SectionPos.sectionToBlockCoord(section.x());
+            int baseY = SectionPos.sectionToBlockCoord(section.y());
+            int baseZ = SectionPos.sectionToBlockCoord(section.z());
+            for (int y = Math.max(0, min.getY() - baseY); y <= Math.min(15, max.getY() - baseY); y++) {
+                for (int z = Math.max(0, min.getZ() - baseZ); z <= Math.min(15, max.getZ() - baseZ); z++) {
+                    for (int x = Math.max(0, min.getX() - baseX); x <= Math.min(15, max.getX() - baseX); x++) {
+                        BlockState state = section.states().get(x, y, z);
+                        if (relevant.test(state)) {
+                            found.put(BlockPos.asLong(baseX + x, baseY + y, baseZ + z), state);
+                        }
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Checks if a position was covered by this snapshot, i.e. lies in the box and in a loaded section.
+     * @param pos The packed position.
+     * @return True if the snapshot knows the contents of this position.
+     */
+    public boolean covers(long pos) {
+        int x = BlockPos.getX(pos);
+        int y = BlockPos.getY(pos);
+        int z = BlockPos.getZ(pos);
+        return x >= min.getX() && x <= max.getX()
+            && y >= min.getY() && y <= max.getY()
+            && z >= min.getZ() && z <= max.getZ()
+            && coveredSections.contains(SectionPos.blockToSection(pos));
+    }
+
+    /**
+     * Gets the number of sections that were actually copied.
+     * @return Copied section count.
+     */
+    public int getCopiedSections() {
+        return sections.size();
+    }
+}